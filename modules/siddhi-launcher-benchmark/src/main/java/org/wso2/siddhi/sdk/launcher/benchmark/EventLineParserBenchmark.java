@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.benchmark;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.sdk.launcher.util.EventLineParser;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link EventLineParser} against the Gson based parsing the launcher used before it, for an event
+ * line of every attribute type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLineParserBenchmark {
+
+    private static final String LINE = "StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true]";
+
+    private EventLineParser eventLineParser;
+    private Gson gson;
+
+    @Setup
+    public void setUp() {
+        StreamDefinition streamDefinition = StreamDefinition.id("StockStream")
+                .attribute("symbol", Attribute.Type.STRING)
+                .attribute("price", Attribute.Type.FLOAT)
+                .attribute("volume", Attribute.Type.LONG)
+                .attribute("trades", Attribute.Type.INT)
+                .attribute("change", Attribute.Type.DOUBLE)
+                .attribute("active", Attribute.Type.BOOL);
+        eventLineParser = new EventLineParser(Collections.singletonMap("StockStream", streamDefinition));
+        gson = new Gson();
+    }
+
+    @Benchmark
+    public Object[] eventLineParser() {
+        return eventLineParser.parse(LINE);
+    }
+
+    @Benchmark
+    public Object[] gson() {
+        String[] components = LINE.split("=");
+        return gson.fromJson(components[1], Object[].class);
+    }
+}
@@ -18,18 +18,29 @@
 package org.wso2.siddhi.sdk.launcher;
 
 import org.apache.log4j.Logger;
-import org.wso2.siddhi.core.SiddhiAppRuntime;
-import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.query.compiler.SiddhiCompiler;
+import org.wso2.siddhi.sdk.launcher.daemon.DaemonClient;
+import org.wso2.siddhi.sdk.launcher.daemon.SiddhiDaemon;
 import org.wso2.siddhi.sdk.launcher.debug.VMDebugManager;
 import org.wso2.siddhi.sdk.launcher.exception.FileReadException;
 import org.wso2.siddhi.sdk.launcher.exception.SLauncherException;
+import org.wso2.siddhi.sdk.launcher.load.LoadConfig;
+import org.wso2.siddhi.sdk.launcher.load.SiddhiLoad;
+import org.wso2.siddhi.sdk.launcher.run.SiddhiAppFile;
 import org.wso2.siddhi.sdk.launcher.run.SiddhiRun;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Contains utility methods for executing a Siddhi program.
@@ -38,42 +49,139 @@ public class LauncherUtils {
 
     private static final Logger log = Logger.getLogger(LauncherUtils.class);
 
+    private static final String SIDDHI_FILE_EXTENSION = ".siddhi";
+
     public static void runProgram(boolean isDebugEnabled, String[] args) {
 
         if (args.length == 0 || args[0] == null) {
             throw new FileReadException("No Siddhi App file Path given");
         }
-        String siddhiAppPath = args[0];
-        // Validate siddhiApp
-        String siddhiApp = validateAndGetSiddhdiApp(siddhiAppPath);
-        String inputFilePath;
-        String inputFile = "";
-        if (!(args.length == 1 || args[1] == null || args[1].equalsIgnoreCase(""))) {
-            inputFilePath = args[1];
-            try {
-                inputFile = readText(inputFilePath);
-            } catch (IOException e) {
-                throw new FileReadException("Failed to read event input file:" + inputFilePath + ":" + e);
+        // Validate siddhiApps
+        List<SiddhiAppFile> siddhiAppFiles = getSiddhiAppFiles(args);
+        if (siddhiAppFiles.size() == 1 && !siddhiAppFiles.get(0).hasInputFile()) {
+            log.info("Event Input file is not provided or file is empty");
+        }
+
+        if (!isDebugEnabled) {
+            SiddhiRun siddhiRun = new SiddhiRun();
+            if (siddhiAppFiles.size() == 1) {
+                siddhiRun.runSiddhi(siddhiAppFiles.get(0));
+            } else {
+                siddhiRun.runSiddhiApps(siddhiAppFiles);
             }
         } else {
-            log.info("Event Input file is not provided or file is empty");
+            VMDebugManager vmDebugManager = VMDebugManager.getInstance();
+            for (SiddhiAppFile siddhiAppFile : siddhiAppFiles) {
+                vmDebugManager.mainInit(siddhiAppFile.getPath(), siddhiAppFile.getSiddhiApp(),
+                        siddhiAppFile.getInputFilePath());
+            }
         }
+    }
 
-        if (!siddhiApp.equals("")) {
-            if (!isDebugEnabled) {
-                try {
-                    SiddhiRun siddhiRun = new SiddhiRun();
-                    siddhiRun.runSiddhi(siddhiApp, inputFile);
-                } catch (InterruptedException e) {
-                    throw new FileReadException("Siddhi App execution error: " + e);
+    /**
+     * Reads the Siddhi Apps of the run arguments. The arguments are Siddhi App files and directories of Siddhi App
+     * files, where a Siddhi App file can be followed by its event input file.
+     *
+     * @param args the run arguments
+     * @return the Siddhi App files, in the order they are given
+     */
+    private static List<SiddhiAppFile> getSiddhiAppFiles(String[] args) {
+        // Pairs of siddhiApp file paths and event input file paths
+        List<String[]> paths = new ArrayList<>();
+        String[] lastFilePaths = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg == null || arg.isEmpty()) {
+                continue;
+            }
+            File file = new File(arg);
+            if (file.isDirectory()) {
+                File[] siddhiAppFiles = file.listFiles((dir, name) -> name.toLowerCase(Locale.ENGLISH)
+                        .endsWith(SIDDHI_FILE_EXTENSION));
+                if (siddhiAppFiles == null || siddhiAppFiles.length == 0) {
+                    throw new FileReadException("No siddhi app files found in directory:" + arg);
+                }
+                Arrays.sort(siddhiAppFiles);
+                for (File siddhiAppFile : siddhiAppFiles) {
+                    paths.add(new String[]{siddhiAppFile.getPath(), ""});
                 }
+                lastFilePaths = null;
+            } else if (i == 0 || arg.toLowerCase(Locale.ENGLISH).endsWith(SIDDHI_FILE_EXTENSION)) {
+                lastFilePaths = new String[]{arg, ""};
+                paths.add(lastFilePaths);
+            } else if (lastFilePaths != null && lastFilePaths[1].isEmpty()) {
+                // The input file is streamed by the input feeder, hence it is only validated here
+                validateInputFilePath(arg);
+                lastFilePaths[1] = arg;
             } else {
-                VMDebugManager vmDebugManager = VMDebugManager.getInstance();
-                vmDebugManager.mainInit(siddhiAppPath, siddhiApp, inputFile);
+                throw new FileReadException("Event input file " + arg + " does not follow a siddhi app file");
             }
-        } else {
+        }
+        List<SiddhiAppFile> siddhiAppFiles = new ArrayList<>();
+        Set<String> siddhiAppNames = new HashSet<>();
+        for (String[] filePaths : paths) {
+            String siddhiApp = validateAndGetSiddhdiApp(filePaths[0]);
+            if (siddhiApp.equals("")) {
+                throw new FileReadException("No valid SiddhiApp found in the file:" + filePaths[0]);
+            }
+            String siddhiAppName = SiddhiAppUtils.getAppName(siddhiApp, new File(filePaths[0]).getName());
+            if (!siddhiAppNames.add(siddhiAppName)) {
+                throw new FileReadException("More than one siddhi app is named " + siddhiAppName);
+            }
+            siddhiAppFiles.add(new SiddhiAppFile(filePaths[0], siddhiAppName, siddhiApp, filePaths[1]));
+        }
+        return siddhiAppFiles;
+    }
+
+    /**
+     * Generates synthetic load for a Siddhi App.
+     *
+     * @param siddhiAppPath path to the siddhiApp file
+     * @param loadConfig    configuration of the load
+     */
+    public static void generateLoad(String siddhiAppPath, LoadConfig loadConfig) {
+        String siddhiApp = validateAndGetSiddhdiApp(siddhiAppPath);
+        if (siddhiApp.equals("")) {
             throw new FileReadException("No valid SiddhiApp found in the file");
         }
+        SiddhiLoad siddhiLoad = new SiddhiLoad();
+        siddhiLoad.generateLoad(siddhiApp, loadConfig);
+    }
+
+    /**
+     * Starts a launcher daemon which runs the Siddhi Apps submitted to it, and waits until it is shut down.
+     *
+     * @param port local port the daemon listens on
+     */
+    public static void startDaemon(int port) {
+        SiddhiDaemon siddhiDaemon = new SiddhiDaemon(port);
+        siddhiDaemon.start();
+    }
+
+    /**
+     * Submits a Siddhi App and its event input file to a launcher daemon, and waits until the input is fed.
+     *
+     * @param port local port the daemon listens on
+     * @param args the siddhiApp file path, optionally followed by the event input file path
+     */
+    public static void submitToDaemon(int port, String[] args) {
+        if (args.length == 0 || args[0] == null) {
+            throw new FileReadException("No Siddhi App file Path given");
+        }
+        // The daemon runs in another directory, hence the paths are resolved here
+        validateSiddhiAppPath(args[0]);
+        String siddhiAppPath = new File(args[0]).getAbsolutePath();
+        String inputFilePath = "";
+        if (!(args.length == 1 || args[1] == null || args[1].equalsIgnoreCase(""))) {
+            if (args[1].toLowerCase(Locale.ENGLISH).endsWith(SIDDHI_FILE_EXTENSION)) {
+                throw new FileReadException("Only a single siddhi app can be run on the launcher daemon, " +
+                        "found: " + args[1]);
+            }
+            validateInputFilePath(args[1]);
+            inputFilePath = new File(args[1]).getAbsolutePath();
+        }
+        DaemonClient daemonClient = new DaemonClient(port);
+        daemonClient.run(siddhiAppPath, inputFilePath);
     }
 
     /**
@@ -95,27 +203,30 @@ public class LauncherUtils {
     }
 
     /**
-     * Validates the Siddhi App.
+     * Validates the event input file path.
+     *
+     * @param inputFilePath path to the event input file
+     */
+    public static void validateInputFilePath(String inputFilePath) {
+        File inputFile = new File(inputFilePath);
+        if (!inputFile.exists() || !inputFile.isFile() || !inputFile.canRead()) {
+            throw new FileReadException("Failed to read event input file:" + inputFilePath);
+        }
+    }
+
+    /**
+     * Validates the Siddhi App. The app is only parsed here, since the run, debug and load modes compile it into
+     * their own runtime, which reports the remaining errors of the app.
      *
      * @param siddhiAppPath path to the siddhiApp file
      */
-    private static String validateAndGetSiddhdiApp(String siddhiAppPath) {
-        SiddhiManager siddhiManager = new SiddhiManager();
+    public static String validateAndGetSiddhdiApp(String siddhiAppPath) {
         String siddhiApp = "";
         boolean isValidSiddhiAppPath = validateSiddhiAppPath(siddhiAppPath);
         if (isValidSiddhiAppPath) {
             try {
                 siddhiApp = readText(siddhiAppPath);
-                SiddhiAppRuntime siddhiAppRuntime = null;
-                try {
-                    siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
-                    siddhiAppRuntime.start();
-                } finally {
-                    if (siddhiAppRuntime != null) {
-                        siddhiAppRuntime.shutdown();
-                        siddhiManager.shutdown();
-                    }
-                }
+                SiddhiCompiler.parse(SiddhiCompiler.updateVariables(siddhiApp));
             } catch (IOException e) {
                 throw new FileReadException("Failed to read siddhi app file:" + siddhiAppPath + ":" + e);
             }
@@ -141,6 +252,55 @@ public class LauncherUtils {
         }
     }
 
+    /**
+     * Read an integer system property.
+     *
+     * @param name         name of the system property
+     * @param defaultValue value used when the property is not set or is invalid
+     * @param minimumValue smallest valid value of the property
+     * @return the value of the property
+     */
+    public static int getIntProperty(String name, int defaultValue, int minimumValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.equals("")) {
+            return defaultValue;
+        }
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            if (intValue >= minimumValue) {
+                return intValue;
+            }
+        } catch (NumberFormatException e) {
+            // the warning below is logged for both invalid formats and out of range values
+        }
+        log.warn("Invalid value " + value + " for " + name + ", using " + defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Read a non negative decimal system property.
+     *
+     * @param name         name of the system property
+     * @param defaultValue value used when the property is not set or is invalid
+     * @return the value of the property
+     */
+    public static double getDoubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.equals("")) {
+            return defaultValue;
+        }
+        try {
+            double doubleValue = Double.parseDouble(value.trim());
+            if (doubleValue >= 0 && !Double.isInfinite(doubleValue)) {
+                return doubleValue;
+            }
+        } catch (NumberFormatException e) {
+            // the warning below is logged for both invalid formats and out of range values
+        }
+        log.warn("Invalid value " + value + " for " + name + ", using " + defaultValue);
+        return defaultValue;
+    }
+
     public static SLauncherException createUsageException(String errorMsg) {
         SLauncherException launcherException = new SLauncherException();
         launcherException.addMessage("siddhi: " + errorMsg);
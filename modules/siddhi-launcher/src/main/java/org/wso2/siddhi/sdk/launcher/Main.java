@@ -24,9 +24,12 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.beust.jcommander.Parameters;
 import org.apache.log4j.Logger;
+import org.wso2.siddhi.sdk.launcher.daemon.DaemonClient;
 import org.wso2.siddhi.sdk.launcher.exception.SLauncherException;
+import org.wso2.siddhi.sdk.launcher.load.LoadConfig;
 import org.wso2.siddhi.sdk.launcher.util.Constants;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -60,16 +63,24 @@ public class Main {
 
     private static Optional<SLauncherCmd> getInvokedCmd(String... args) throws SLauncherException {
         try {
+            MainCmd mainCmd = new MainCmd();
+            JCommander cmdParser = new JCommander(mainCmd);
+            cmdParser.setProgramName("siddhi");
             // Run command
             RunCmd runCmd = new RunCmd();
-            JCommander cmdParser = new JCommander(runCmd);
-            cmdParser.setProgramName("siddhi");
+            cmdParser.addCommand("run", runCmd);
+            // Load command
+            LoadCmd loadCmd = new LoadCmd();
+            cmdParser.addCommand("load", loadCmd);
+            // Daemon command
+            DaemonCmd daemonCmd = new DaemonCmd();
+            cmdParser.addCommand("daemon", daemonCmd);
             cmdParser.parse(args);
             String parsedCmdName = cmdParser.getParsedCommand();
             // User has not specified a command. Therefore returning the main command
             // which simply prints usage information.
             if (parsedCmdName == null) {
-                return Optional.of(runCmd);
+                return Optional.of(mainCmd);
             }
             Map<String, JCommander> commanderMap = cmdParser.getCommands();
             return Optional.of((SLauncherCmd) commanderMap.get(parsedCmdName).getObjects().get(0));
@@ -93,13 +104,28 @@ public class Main {
         }
     }
 
+    /**
+     * This class represents the main command, which is invoked when the user has not specified a command.
+     */
+    private static class MainCmd implements SLauncherCmd {
+
+        @Parameter(names = "--debug", hidden = true)
+        private String debugPort;
+
+        @Override
+        public void execute() {
+            throw new RuntimeException("No command provided, use 'siddhi run', 'siddhi load' or 'siddhi daemon'");
+        }
+    }
+
     /**
      * This class represents the "run" command and it holds arguments and flags specified by the user.
      */
     @Parameters(commandNames = "run", commandDescription = "compile and run Siddhi program")
     private static class RunCmd implements SLauncherCmd {
 
-        @Parameter(arity = 1, description = "arguments")
+        @Parameter(description = "siddhi app files or directories, each file optionally followed by its event input " +
+                "file")
         private List<String> argList;
 
         @Parameter(names = "--debug", hidden = true)
@@ -108,26 +134,207 @@ public class Main {
         @Parameter(names = "--siddhi.debug", hidden = true, description = "remote debugging port")
         private String siddhiDebugPort;
 
+        @Parameter(names = "--batch-size", description = "number of consecutive events of a stream sent together")
+        private String batchSize;
+
+        @Parameter(names = "--trace", description = "log every n-th event sent by the input feeder")
+        private String traceSampleRate;
+
+        @Parameter(names = "--feeder-threads", description = "number of threads sending the streams in parallel")
+        private String feederThreads;
+
+        @Parameter(names = "--replay-speed", description = "speed multiplier for replaying the event timestamps, " +
+                "0 sends the events as fast as possible")
+        private String replaySpeed;
+
+        @Parameter(names = "--stats", description = "report the latency and throughput of the output streams every " +
+                "n seconds, 0 reports them only on exit")
+        private String statsInterval;
+
+        @Parameter(names = "--watch", description = "redeploy a Siddhi app with its state when its file is changed")
+        private boolean watch = false;
+
+        @Parameter(names = "--until-input-end", description = "shut down once the event input files are fed and the " +
+                "events are processed")
+        private boolean untilInputEnd = false;
+
+        @Parameter(names = "--persist-dir", description = "directory to persist the state of the Siddhi apps to, " +
+                "the last persisted state is restored on start")
+        private String persistDir;
+
+        @Parameter(names = "--persist-interval", description = "interval in seconds between the state persists")
+        private String persistInterval;
+
+        @Parameter(names = "--persist-store", description = "store the state is persisted to, 'file' keeps a file " +
+                "per snapshot and 'segment' appends the snapshots to memory mapped segment files")
+        private String persistStore;
+
+        @Parameter(names = "--daemon-port", description = "run the Siddhi program on the launcher daemon listening " +
+                "on the given port")
+        private Integer daemonPort;
+
         @Override
         public void execute() {
             boolean debugMode = false;
             if (argList == null || argList.size() == 0) {
                 throw new RuntimeException("No Siddhi app provided");
             }
+            if (daemonPort != null) {
+                if (siddhiDebugPort != null) {
+                    throw new RuntimeException("Remote debugging is not supported on the launcher daemon");
+                }
+                if (watch) {
+                    throw new RuntimeException("Watching Siddhi files is not supported on the launcher daemon");
+                }
+                if (persistDir != null || persistInterval != null || persistStore != null) {
+                    throw new RuntimeException("State persistence is not supported on the launcher daemon");
+                }
+                if (untilInputEnd) {
+                    throw new RuntimeException("Runs on the launcher daemon always end with their input");
+                }
+                if (batchSize != null || traceSampleRate != null || feederThreads != null || replaySpeed != null) {
+                    throw new RuntimeException("Input feeder options are taken from the startup options of the " +
+                            "launcher daemon");
+                }
+                if (statsInterval != null) {
+                    throw new RuntimeException("Output statistics are not supported on the launcher daemon");
+                }
+                if (argList.size() > 2) {
+                    throw new RuntimeException("Only a single Siddhi file, optionally followed by its event input " +
+                            "file, can be run on the launcher daemon");
+                }
+                LauncherUtils.submitToDaemon(daemonPort, argList.toArray(new String[0]));
+                return;
+            }
             // Enable remote debugging
             if (siddhiDebugPort != null) {
                 System.setProperty(Constants.SYSTEM_PROP_SIDDHI_DEBUG, siddhiDebugPort);
                 debugMode = true;
             }
-            // Filter out the list of arguments given to the siddhi program.
-            String[] programArgs;
-            if (argList.size() >= 2) {
-                argList.remove(0);
-                programArgs = argList.toArray(new String[0]);
-            } else {
-                programArgs = new String[0];
+            if (batchSize != null) {
+                System.setProperty(Constants.SYSTEM_PROP_FEEDER_BATCH_SIZE, batchSize);
+            }
+            if (traceSampleRate != null) {
+                System.setProperty(Constants.SYSTEM_PROP_FEEDER_TRACE_SAMPLE_RATE, traceSampleRate);
+            }
+            if (feederThreads != null) {
+                System.setProperty(Constants.SYSTEM_PROP_FEEDER_THREADS, feederThreads);
+            }
+            if (replaySpeed != null) {
+                System.setProperty(Constants.SYSTEM_PROP_FEEDER_REPLAY_SPEED, replaySpeed);
             }
+            if (statsInterval != null) {
+                System.setProperty(Constants.SYSTEM_PROP_RUN_STATS_INTERVAL, statsInterval);
+            }
+            if (untilInputEnd) {
+                if (debugMode) {
+                    throw new RuntimeException("Ending the run with its input is not supported with remote " +
+                            "debugging");
+                }
+                System.setProperty(Constants.SYSTEM_PROP_RUN_UNTIL_INPUT_END, Boolean.TRUE.toString());
+            }
+            if (persistDir != null) {
+                System.setProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_DIR, persistDir);
+            }
+            if (persistInterval != null) {
+                System.setProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_INTERVAL, persistInterval);
+            }
+            if (persistStore != null) {
+                System.setProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_STORE, persistStore);
+            }
+            if (watch) {
+                if (debugMode) {
+                    throw new RuntimeException("Watching Siddhi files is not supported with remote debugging");
+                }
+                System.setProperty(Constants.SYSTEM_PROP_RUN_WATCH, Boolean.TRUE.toString());
+            }
+            String[] programArgs = argList.toArray(new String[0]);
             LauncherUtils.runProgram(debugMode, programArgs);
         }
     }
+
+    /**
+     * This class represents the "load" command and it holds arguments and flags specified by the user.
+     */
+    @Parameters(commandNames = "load", commandDescription = "generate load for a Siddhi program")
+    private static class LoadCmd implements SLauncherCmd {
+
+        @Parameter(description = "arguments")
+        private List<String> argList;
+
+        @Parameter(names = "--debug", hidden = true)
+        private String debugPort;
+
+        @Parameter(names = "--stream", description = "stream to generate events for, all input streams by default")
+        private List<String> streamNames = new ArrayList<>();
+
+        @Parameter(names = "--template", description = "event template in <stream name>=<json array> format, " +
+                "null values are generated randomly")
+        private List<String> templates = new ArrayList<>();
+
+        @Parameter(names = "--rate", description = "events per second per stream, 0 sends as fast as possible")
+        private String rate = "0";
+
+        @Parameter(names = "--duration", description = "duration of the load in seconds")
+        private String duration = "60";
+
+        @Parameter(names = "--count", description = "number of events per stream, unlimited by default")
+        private String count = "0";
+
+        @Parameter(names = "--batch-size", description = "number of events of a stream sent together")
+        private String batchSize;
+
+        @Override
+        public void execute() {
+            if (argList == null || argList.size() == 0) {
+                throw new RuntimeException("No Siddhi app provided");
+            }
+            if (batchSize != null) {
+                System.setProperty(Constants.SYSTEM_PROP_FEEDER_BATCH_SIZE, batchSize);
+            }
+            LoadConfig loadConfig = new LoadConfig();
+            try {
+                loadConfig.setRate(Double.parseDouble(rate));
+                loadConfig.setDurationSeconds(Long.parseLong(duration));
+                loadConfig.setCount(Long.parseLong(count));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid load option: " + e.getMessage());
+            }
+            loadConfig.setStreamNames(streamNames);
+            loadConfig.setTemplates(templates);
+            LauncherUtils.generateLoad(argList.get(0), loadConfig);
+        }
+    }
+
+    /**
+     * This class represents the "daemon" command and it holds arguments and flags specified by the user.
+     */
+    @Parameters(commandNames = "daemon", commandDescription = "start a launcher daemon which runs Siddhi programs " +
+            "submitted with 'siddhi run --daemon-port'")
+    private static class DaemonCmd implements SLauncherCmd {
+
+        @Parameter(names = "--debug", hidden = true)
+        private String debugPort;
+
+        @Parameter(names = "--port", description = "local port the daemon listens on")
+        private int port = Constants.DEFAULT_DAEMON_PORT;
+
+        @Parameter(names = "--stop", description = "stop the Siddhi app of the given name on the running daemon")
+        private String stopAppName;
+
+        @Parameter(names = "--shutdown", description = "shut down the running daemon")
+        private boolean shutdown = false;
+
+        @Override
+        public void execute() {
+            DaemonClient daemonClient = new DaemonClient(port);
+            if (stopAppName != null) {
+                daemonClient.stop(stopAppName);
+            } else if (shutdown) {
+                daemonClient.shutdown();
+            } else {
+                LauncherUtils.startDaemon(port);
+            }
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.daemon;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.sdk.launcher.exception.DaemonException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Submits requests to a {@link SiddhiDaemon} running on the local host and logs its responses.
+ */
+public class DaemonClient {
+
+    private static final Logger log = Logger.getLogger(DaemonClient.class);
+
+    private final int port;
+
+    public DaemonClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Run a siddhi app on the daemon and wait until its event input file is fed.
+     *
+     * @param siddhiAppPath absolute path to the siddhiApp file
+     * @param inputFilePath absolute path to the event input file, or an empty string
+     */
+    public void run(String siddhiAppPath, String inputFilePath) {
+        send(SiddhiDaemon.COMMAND_RUN, siddhiAppPath, inputFilePath);
+    }
+
+    /**
+     * Stop a siddhi app running on the daemon.
+     *
+     * @param siddhiAppName name of the siddhi app
+     */
+    public void stop(String siddhiAppName) {
+        send(SiddhiDaemon.COMMAND_STOP, siddhiAppName);
+    }
+
+    /**
+     * Shut down the daemon along with the siddhi apps running on it.
+     */
+    public void shutdown() {
+        send(SiddhiDaemon.COMMAND_SHUTDOWN);
+    }
+
+    private void send(String... fields) {
+        String token = readToken();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.UTF_8), true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            writer.println(token + SiddhiDaemon.FIELD_SEPARATOR + String.join(SiddhiDaemon.FIELD_SEPARATOR, fields));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(SiddhiDaemon.RESPONSE_OK)) {
+                    return;
+                } else if (line.startsWith(SiddhiDaemon.RESPONSE_ERROR)) {
+                    throw new DaemonException(line.substring(SiddhiDaemon.RESPONSE_ERROR.length()).trim());
+                }
+                log.info(line);
+            }
+            throw new DaemonException("Connection to the Siddhi launcher daemon closed without a response");
+        } catch (IOException e) {
+            throw new DaemonException("Failed to connect to the Siddhi launcher daemon on port " + port + ": " +
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the token the daemon wrote when it started, which proves that the request comes from the same user.
+     */
+    private String readToken() {
+        Path tokenFile = SiddhiDaemon.getTokenFile(port);
+        try {
+            return new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            throw new DaemonException("Failed to read the token of the Siddhi launcher daemon on port " + port +
+                    " from " + tokenFile + ", the daemon is not running or runs as another user: " + e, e);
+        }
+    }
+}
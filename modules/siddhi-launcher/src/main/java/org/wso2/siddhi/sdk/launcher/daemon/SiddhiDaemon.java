@@ -0,0 +1,303 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.daemon;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.exception.DaemonException;
+import org.wso2.siddhi.sdk.launcher.util.InputFeeder;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long lived launcher process which keeps a warmed up {@link SiddhiManager} and runs the siddhi apps submitted by
+ * {@link DaemonClient}s, so that a run does not pay for the JVM and extension startup.
+ * <p>
+ * A request is a single line of tab separated fields, starting with the token of the daemon and the command. The
+ * daemon answers with any number of output lines, followed by a line which is either {@value #RESPONSE_OK} or
+ * {@value #RESPONSE_ERROR} and the error message. The token is generated when the daemon starts and is written to a
+ * file only the user running the daemon can read, so that other local users can not submit requests to the port.
+ * <p>
+ * Each connection is handled on its own thread. Runs are handled one at a time, in the order they are accepted,
+ * while stop and shutdown requests are handled right away, also stopping the input feeder of a run in progress.
+ */
+public class SiddhiDaemon {
+
+    private static final Logger log = Logger.getLogger(SiddhiDaemon.class);
+
+    static final String COMMAND_RUN = "run";
+    static final String COMMAND_STOP = "stop";
+    static final String COMMAND_SHUTDOWN = "shutdown";
+    static final String FIELD_SEPARATOR = "\t";
+    static final String RESPONSE_OK = "OK";
+    static final String RESPONSE_ERROR = "ERROR";
+
+    private static final int BACKLOG = 50;
+    private static final int TOKEN_BYTES = 32;
+    private static final String TOKEN_DIRECTORY = ".siddhi";
+
+    private final SiddhiManager siddhiManager = new SiddhiManager();
+    private final Map<String, SiddhiAppRuntime> siddhiAppRuntimeMap = new LinkedHashMap<>();
+    private final Map<String, String> siddhiAppPathToNameMap = new HashMap<>();
+    private final Map<String, InputFeeder> inputFeederMap = new HashMap<>();
+    private final Object runLock = new Object();
+    private final int port;
+    private volatile boolean running = false;
+    private ServerSocket serverSocket;
+    private byte[] token;
+
+    public SiddhiDaemon(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Get the file holding the token of the daemon listening on a port.
+     *
+     * @param port local port the daemon listens on
+     * @return path of the token file
+     */
+    static Path getTokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"), TOKEN_DIRECTORY, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Accept requests on the loopback interface until a shutdown request is received.
+     */
+    public void start() {
+        Path tokenFile = getTokenFile(port);
+        ExecutorService requestHandlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Siddhi Daemon Request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ServerSocket serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress())) {
+            this.serverSocket = serverSocket;
+            token = createToken(tokenFile);
+            running = true;
+            log.info("Siddhi launcher daemon listening on port " + port);
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (running) {
+                        log.error("Error in accepting a daemon request: " + e);
+                    }
+                    continue;
+                }
+                requestHandlers.execute(() -> {
+                    try (Socket requestSocket = socket) {
+                        handleRequest(requestSocket);
+                    } catch (IOException e) {
+                        log.error("Error in handling a daemon request: " + e);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new DaemonException("Failed to start the daemon on port " + port + ": " + e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                running = false;
+                for (String siddhiAppName : siddhiAppRuntimeMap.keySet().toArray(new String[0])) {
+                    undeploy(siddhiAppName);
+                }
+            }
+            requestHandlers.shutdown();
+            siddhiManager.shutdown();
+            try {
+                Files.deleteIfExists(tokenFile);
+            } catch (IOException e) {
+                log.error("Failed to delete the daemon token file " + tokenFile + ": " + e);
+            }
+            log.info("Siddhi launcher daemon stopped");
+        }
+    }
+
+    /**
+     * Generate the token of the daemon and write it to a file which only the owner can read.
+     */
+    private static byte[] createToken(Path tokenFile) throws IOException {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Files.createDirectories(tokenFile.getParent());
+        Files.deleteIfExists(tokenFile);
+        try {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, the file is protected by the permissions of the home directory of the user
+            Files.createFile(tokenFile);
+        }
+        Files.write(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+        return token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void handleRequest(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                StandardCharsets.UTF_8), true);
+        String request = reader.readLine();
+        if (request == null) {
+            return;
+        }
+        String[] tokenAndFields = request.split(FIELD_SEPARATOR, 2);
+        if (tokenAndFields.length < 2 || !MessageDigest.isEqual(token,
+                tokenAndFields[0].getBytes(StandardCharsets.UTF_8))) {
+            log.error("Rejected a daemon request without a valid token");
+            writer.println(RESPONSE_ERROR + " Invalid daemon token, requests are only accepted from the user " +
+                    "running the daemon");
+            return;
+        }
+        String[] fields = tokenAndFields[1].split(FIELD_SEPARATOR, -1);
+        try {
+            switch (fields[0]) {
+                case COMMAND_RUN:
+                    synchronized (runLock) {
+                        run(fields, writer);
+                    }
+                    break;
+                case COMMAND_STOP:
+                    synchronized (this) {
+                        if (fields.length < 2 || !undeploy(fields[1])) {
+                            throw new DaemonException("No running Siddhi app named '" +
+                                    ((fields.length < 2) ? "" : fields[1]) + "'");
+                        }
+                    }
+                    writer.println("Stopped Siddhi app " + fields[1]);
+                    break;
+                case COMMAND_SHUTDOWN:
+                    writer.println("Shutting down the Siddhi launcher daemon");
+                    shutdown();
+                    break;
+                default:
+                    throw new DaemonException("Unknown daemon command '" + fields[0] + "'");
+            }
+            writer.println(RESPONSE_OK);
+        } catch (RuntimeException e) {
+            log.error("Daemon request '" + tokenAndFields[1] + "' failed: " + e);
+            writer.println(RESPONSE_ERROR + " " + ((e.getMessage() == null) ? e.toString() : e.getMessage()));
+        }
+    }
+
+    /**
+     * Stop accepting requests, which shuts the running siddhi apps down.
+     */
+    private void shutdown() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.error("Error in closing the daemon socket: " + e);
+        }
+    }
+
+    /**
+     * Run a siddhi app, replacing the running app of the same name or file, and feed its event input file to it. The
+     * response is sent once the input file is fed, while the app keeps running until it is replaced or stopped. The
+     * app is registered once it is started, so that an app which fails to start is not left behind.
+     */
+    private void run(String[] fields, PrintWriter writer) {
+        if (fields.length < 2) {
+            throw new DaemonException("No Siddhi App file Path given");
+        }
+        String siddhiApp = LauncherUtils.validateAndGetSiddhdiApp(fields[1]);
+        String inputFilePath = (fields.length > 2) ? fields[2] : "";
+        if (!inputFilePath.equals("")) {
+            LauncherUtils.validateInputFilePath(inputFilePath);
+        }
+        // The running app is replaced before the new one is created, as both would register under the same name
+        synchronized (this) {
+            String[] previousSiddhiAppNames = {siddhiAppPathToNameMap.remove(fields[1]),
+                    SiddhiAppUtils.getAppName(siddhiApp)};
+            for (String previousSiddhiAppName : previousSiddhiAppNames) {
+                if (previousSiddhiAppName != null && undeploy(previousSiddhiAppName)) {
+                    writer.println("Stopped previous Siddhi app " + previousSiddhiAppName);
+                }
+            }
+        }
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+        try {
+            siddhiAppRuntime.start();
+        } catch (RuntimeException e) {
+            siddhiAppRuntime.shutdown();
+            throw e;
+        }
+        InputFeeder inputFeeder = inputFilePath.equals("") ? null : new InputFeeder(siddhiAppRuntime, inputFilePath);
+        synchronized (this) {
+            if (!running) {
+                siddhiAppRuntime.shutdown();
+                throw new DaemonException("The Siddhi launcher daemon is shutting down");
+            }
+            siddhiAppRuntimeMap.put(siddhiAppRuntime.getName(), siddhiAppRuntime);
+            siddhiAppPathToNameMap.put(fields[1], siddhiAppRuntime.getName());
+            if (inputFeeder != null) {
+                // Registered before it is started, so that stopping the app stops the feeder as well
+                inputFeederMap.put(siddhiAppRuntime.getName(), inputFeeder);
+            }
+        }
+        writer.println("Started Siddhi app " + siddhiAppRuntime.getName());
+        if (inputFeeder != null) {
+            inputFeeder.start();
+            inputFeeder.join();
+            synchronized (this) {
+                inputFeederMap.remove(siddhiAppRuntime.getName(), inputFeeder);
+            }
+            writer.println(inputFeeder.getStatistics().getSummary());
+        }
+    }
+
+    /**
+     * Stop a siddhi app along with its input feeder. Called with the daemon locked.
+     */
+    private boolean undeploy(String siddhiAppName) {
+        InputFeeder inputFeeder = inputFeederMap.remove(siddhiAppName);
+        if (inputFeeder != null) {
+            inputFeeder.stop();
+        }
+        SiddhiAppRuntime siddhiAppRuntime = siddhiAppRuntimeMap.remove(siddhiAppName);
+        if (siddhiAppRuntime == null) {
+            return false;
+        }
+        siddhiAppRuntime.shutdown();
+        return true;
+    }
+}
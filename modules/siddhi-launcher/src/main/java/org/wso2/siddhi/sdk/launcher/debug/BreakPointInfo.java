@@ -26,12 +26,19 @@ public class BreakPointInfo {
 
     private String queryName;
 
+    private int queryLine;
+
+    private long hitCount;
+
+    private boolean runTargetReached;
+
     private String queryTerminal;
 
     private String fileName;
 
     private Object eventInfo;
-    private Map<String, Object> queryState;
+    private Map<String, Integer> queryStateSummary;
+    private long queryStateVersion;
 
     public BreakPointInfo(String fileName, int queryIndex, String queryTerminal) {
         this.fileName = fileName;
@@ -55,6 +62,30 @@ public class BreakPointInfo {
         this.queryName = queryName;
     }
 
+    public int getQueryLine() {
+        return queryLine;
+    }
+
+    public void setQueryLine(int queryLine) {
+        this.queryLine = queryLine;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public boolean isRunTargetReached() {
+        return runTargetReached;
+    }
+
+    public void setRunTargetReached(boolean runTargetReached) {
+        this.runTargetReached = runTargetReached;
+    }
+
     public Integer getQueryIndex() {
         return queryIndex;
     }
@@ -63,12 +94,20 @@ public class BreakPointInfo {
         return queryTerminal;
     }
 
-    public Map<String, Object> getQueryState() {
-        return queryState;
+    public Map<String, Integer> getQueryStateSummary() {
+        return queryStateSummary;
+    }
+
+    public void setQueryStateSummary(Map<String, Integer> queryStateSummary) {
+        this.queryStateSummary = queryStateSummary;
+    }
+
+    public long getQueryStateVersion() {
+        return queryStateVersion;
     }
 
-    public void setQueryState(Map<String, Object> queryState) {
-        this.queryState = queryState;
+    public void setQueryStateVersion(long queryStateVersion) {
+        this.queryStateVersion = queryStateVersion;
     }
 
     public String getFileName() {
@@ -0,0 +1,84 @@
+/*
+*  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.wso2.siddhi.sdk.launcher.debug;
+
+import io.netty.channel.Channel;
+import org.wso2.siddhi.sdk.launcher.debug.dto.MessageDTO;
+
+/**
+ * {@code DebugClient} holds the connection of a debug client to the debug session of a Siddhi app. Each client has
+ * its own message queue and keeps track of the query states sent to it.
+ */
+public class DebugClient {
+
+    private final VMDebugSession debugSession;
+    private final Channel channel;
+    private final DebugMessageWriter messageWriter;
+    private final QueryStateTracker queryStateTracker = new QueryStateTracker();
+
+    public DebugClient(VMDebugSession debugSession, Channel channel, DebugMessageWriter messageWriter) {
+        this.debugSession = debugSession;
+        this.channel = channel;
+        this.messageWriter = messageWriter;
+    }
+
+    public VMDebugSession getDebugSession() {
+        return debugSession;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public DebugMessageWriter getMessageWriter() {
+        return messageWriter;
+    }
+
+    public QueryStateTracker getQueryStateTracker() {
+        return queryStateTracker;
+    }
+
+    /**
+     * Check whether the client controls the debug session. The client connected first controls the session, and
+     * the other clients observe it.
+     *
+     * @return true if the client controls the session, otherwise false
+     */
+    public boolean isController() {
+        return debugSession.getController() == this;
+    }
+
+    /**
+     * Write a message to the client.
+     *
+     * @param message the message
+     */
+    public void write(MessageDTO message) {
+        messageWriter.write(message);
+    }
+
+    /**
+     * Discard the pending messages and close the connection.
+     */
+    public void close() {
+        messageWriter.close();
+        queryStateTracker.clear();
+        channel.close();
+    }
+}
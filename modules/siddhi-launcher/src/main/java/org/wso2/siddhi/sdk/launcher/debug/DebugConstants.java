@@ -30,11 +30,24 @@ public class DebugConstants {
     public static final String CMD_STEP_OVER = "STEP_OVER";
     public static final String CMD_RESUME = "RESUME";
     public static final String CMD_REMOVE_BREAKPOINT = "REMOVE_BREAKPOINT";
+    public static final String CMD_SET_LOGPOINTS = "SET_LOGPOINTS";
+    public static final String CMD_REMOVE_LOGPOINTS = "REMOVE_LOGPOINTS";
+    public static final String CMD_GET_QUERY_STATE = "GET_QUERY_STATE";
+    public static final String CMD_STEP_N = "STEP_N";
+    public static final String CMD_RUN_UNTIL_OUTPUT = "RUN_UNTIL_OUTPUT";
+    public static final String CMD_RUN_UNTIL_TIMESTAMP = "RUN_UNTIL_TIMESTAMP";
     // messages sent back to client
     public static final String CODE_HIT = "DEBUG_HIT";
     public static final String MSG_HIT = "Debug point hit.";
+    public static final String MSG_TARGET_REACHED = "Run target reached.";
+    public static final String CODE_LOG = "LOG";
+    public static final String MSG_LOG = "Log point hit.";
+    public static final String CODE_QUERY_STATE = "QUERY_STATE";
+    public static final String MSG_QUERY_STATE = "Query state.";
     public static final String CODE_INVALID = "INVALID";
     public static final String MSG_INVALID = "Invalid Command";
+    public static final String MSG_BUSY = "Too many pending commands";
+    public static final String MSG_OBSERVER = "Only the client connected first can control the debug session";
     public static final String CODE_ACK = "ACK";
     public static final String CODE_COMPLETE = "COMPLETE";
     public static final String MSG_COMPLETE = "Debug session completed.";
@@ -47,6 +60,9 @@ public class DebugConstants {
     public static final String CMD_SEND_EVENT = "SEND_EVENT";
     //default debugger port where websocket server will listen
     public static final String DEFAULT_DEBUG_PORT = "5006";
+    //number of entries of each state element sent for a query state request.
+    public static final int DEFAULT_QUERY_STATE_PAGE_SIZE = 100;
+    public static final int MAX_QUERY_STATE_PAGE_SIZE = 1000;
     //debugger web-socket path.
     public static final String DEBUG_WEBSOCKET_PATH = "/debug";
 }
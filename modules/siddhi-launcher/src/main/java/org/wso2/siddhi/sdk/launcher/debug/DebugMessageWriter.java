@@ -0,0 +1,227 @@
+/*
+*  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.wso2.siddhi.sdk.launcher.debug;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import org.wso2.siddhi.sdk.launcher.debug.dto.BreakPointDTO;
+import org.wso2.siddhi.sdk.launcher.debug.dto.MessageDTO;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code DebugMessageWriter} writes the messages of a debug session to its channel. Messages written by any thread
+ * are queued and handed to the event loop of the channel, which serializes them with a shared object mapper straight
+ * into buffers of the channel allocator, and writes all the pending messages with a single flush.
+ * <p>
+ * Messages are only written while the channel is writable, so a slow client holds them in the queue rather than in
+ * the outbound buffer of the channel. Log point records in the queue are bounded, and the overflow policy decides
+ * what happens to them when the client does not keep up. Other messages are never dropped. The number of dropped
+ * records is reported to the client with the next message sent. Pausing the feeder drops no records, the queue grows
+ * past its capacity by the records of the events which were already on their way when the feeder paused.
+ */
+public class DebugMessageWriter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * What to do when a log point record arrives while the queue is full of records.
+     */
+    public enum OverflowPolicy {
+        // drop the oldest queued record
+        DROP_OLDEST,
+        // replace the queued record of the same log point, or drop the oldest record if there is none
+        COALESCE,
+        // pause the event source until half of the queue is drained, keeping every record
+        PAUSE_FEEDER
+    }
+
+    private final Channel channel;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Runnable pauseSource;
+    private final Runnable resumeSource;
+    private final Deque<MessageDTO> pendingMessages = new ArrayDeque<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Runnable drainTask = this::drain;
+    private int pendingRecords = 0;
+    private long droppedRecords = 0;
+    private boolean sourcePaused = false;
+
+    /**
+     * Create the writer of a channel.
+     *
+     * @param channel        the channel of the debug client
+     * @param capacity       number of log point records queued before the overflow policy applies
+     * @param overflowPolicy policy applied when the queue is full of records
+     * @param pauseSource    pauses the events of the debugged app, used by {@link OverflowPolicy#PAUSE_FEEDER}
+     * @param resumeSource   resumes the events of the debugged app
+     */
+    public DebugMessageWriter(Channel channel, int capacity, OverflowPolicy overflowPolicy, Runnable pauseSource,
+                              Runnable resumeSource) {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.pauseSource = pauseSource;
+        this.resumeSource = resumeSource;
+    }
+
+    /**
+     * Write a message to the channel.
+     *
+     * @param message the message
+     */
+    public void write(MessageDTO message) {
+        boolean pause = false;
+        synchronized (this) {
+            boolean isRecord = isRecord(message);
+            if (isRecord && pendingRecords >= capacity) {
+                if (overflowPolicy == OverflowPolicy.PAUSE_FEEDER) {
+                    if (!sourcePaused) {
+                        sourcePaused = true;
+                        pause = true;
+                    }
+                } else {
+                    if (overflowPolicy != OverflowPolicy.COALESCE || !removePendingRecord(message.getLocation())) {
+                        removePendingRecord(null);
+                    }
+                    droppedRecords++;
+                }
+            }
+            pendingMessages.add(message);
+            if (isRecord) {
+                pendingRecords++;
+            }
+        }
+        if (pause) {
+            pauseSource.run();
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Continue writing the queued messages, called when the channel becomes writable again.
+     */
+    public void onWritable() {
+        scheduleDrain();
+    }
+
+    /**
+     * Discard the queued messages, called when the client disconnects.
+     */
+    public void close() {
+        boolean resume;
+        synchronized (this) {
+            pendingMessages.clear();
+            pendingRecords = 0;
+            resume = sourcePaused;
+            sourcePaused = false;
+        }
+        if (resume) {
+            resumeSource.run();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(drainTask);
+        }
+    }
+
+    private void drain() {
+        // The flag is cleared first, so that a message queued while draining schedules another drain
+        drainScheduled.set(false);
+        boolean written = false;
+        boolean resume = false;
+        while (channel.isWritable()) {
+            MessageDTO message;
+            synchronized (this) {
+                message = pendingMessages.poll();
+                if (message == null) {
+                    break;
+                }
+                if (isRecord(message)) {
+                    pendingRecords--;
+                }
+                if (droppedRecords > 0) {
+                    message.setDroppedMessages(droppedRecords);
+                    droppedRecords = 0;
+                }
+                if (sourcePaused && pendingRecords <= capacity / 2) {
+                    sourcePaused = false;
+                    resume = true;
+                }
+            }
+            channel.write(new TextWebSocketFrame(encode(message)));
+            written = true;
+        }
+        if (written) {
+            channel.flush();
+        }
+        if (resume) {
+            resumeSource.run();
+        }
+    }
+
+    private ByteBuf encode(MessageDTO message) {
+        ByteBuf buffer = channel.alloc().buffer();
+        try (ByteBufOutputStream outputStream = new ByteBufOutputStream(buffer)) {
+            OBJECT_MAPPER.writeValue(outputStream, message);
+            return buffer;
+        } catch (IOException e) {
+            buffer.release();
+            return Unpooled.copiedBuffer(DebugConstants.ERROR_JSON, CharsetUtil.UTF_8);
+        }
+    }
+
+    /**
+     * Remove the newest queued record of a log point, or the oldest queued record when no log point is given.
+     */
+    private boolean removePendingRecord(BreakPointDTO location) {
+        Iterator<MessageDTO> iterator = (location == null) ? pendingMessages.iterator() :
+                pendingMessages.descendingIterator();
+        while (iterator.hasNext()) {
+            MessageDTO message = iterator.next();
+            if (isRecord(message) && (location == null || isSameLocation(location, message.getLocation()))) {
+                iterator.remove();
+                pendingRecords--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRecord(MessageDTO message) {
+        return DebugConstants.CODE_LOG.equals(message.getCode());
+    }
+
+    private static boolean isSameLocation(BreakPointDTO location, BreakPointDTO other) {
+        return other != null && location.getQueryIndex().equals(other.getQueryIndex()) &&
+                location.getQueryTerminal().equals(other.getQueryTerminal());
+    }
+}
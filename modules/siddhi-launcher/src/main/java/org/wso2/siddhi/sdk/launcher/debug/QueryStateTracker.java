@@ -0,0 +1,217 @@
+/*
+*  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.wso2.siddhi.sdk.launcher.debug;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.wso2.siddhi.sdk.launcher.debug.dto.CommandDTO;
+import org.wso2.siddhi.sdk.launcher.debug.dto.MessageDTO;
+import org.wso2.siddhi.sdk.launcher.debug.dto.QueryStateDiffDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code QueryStateTracker} keeps the query state last sent to the client of a debug session, so that a query state
+ * request for the same page of a query is answered with the changes since then rather than the whole page.
+ * <p>
+ * Windows mostly drop their oldest events and append new ones, which moves every indexed entry of the window. The
+ * changes of indexed fields are therefore found after shifting the previous entries to line up with the current
+ * ones, so that a step through a window costs a shift and the new events.
+ */
+public class QueryStateTracker {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern INDEXED_KEY = Pattern.compile("(.*)\\[(\\d+)]");
+
+    private final Map<String, QueryState> sentStates = new HashMap<>();
+
+    /**
+     * Set a page of the query state to a message, as the changes since the same page was last sent when the client
+     * holds it, otherwise as the whole page.
+     *
+     * @param message the message to the client
+     * @param request the query state request, with the query name, elements, offset and limit of the page
+     * @param version version of the query state
+     * @param page    the page of the query state
+     * @param resync  true to send the whole page regardless of what the client holds
+     */
+    public synchronized void setQueryState(MessageDTO message, CommandDTO request, long version,
+                                           Map<String, Map<String, Object>> page, boolean resync) {
+        Map<String, Map<String, JsonNode>> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> element : page.entrySet()) {
+            Map<String, JsonNode> elementEntries = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : element.getValue().entrySet()) {
+                elementEntries.put(entry.getKey(), OBJECT_MAPPER.valueToTree(entry.getValue()));
+            }
+            entries.put(element.getKey(), elementEntries);
+        }
+        QueryState previous = sentStates.put(request.getQueryName(), new QueryState(request, version, entries));
+        if (resync || previous == null || !previous.isSamePage(request)) {
+            message.setQueryState(page);
+            return;
+        }
+        Map<String, QueryStateDiffDTO> diff = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, JsonNode>> element : entries.entrySet()) {
+            Map<String, JsonNode> previousEntries = previous.entries.get(element.getKey());
+            diff.put(element.getKey(), diffElement((previousEntries == null) ? new LinkedHashMap<>() :
+                    previousEntries, element.getValue()));
+        }
+        for (Map.Entry<String, Map<String, JsonNode>> element : previous.entries.entrySet()) {
+            if (!entries.containsKey(element.getKey())) {
+                diff.put(element.getKey(), diffElement(element.getValue(), new LinkedHashMap<>()));
+            }
+        }
+        message.setQueryStateDiff(diff);
+        message.setBaseQueryStateVersion(previous.version);
+    }
+
+    /**
+     * Get the last query state request of a query, which is resent when the query halts again.
+     *
+     * @param queryName name of the query
+     * @return the request, or null if the state of the query was not sent
+     */
+    public synchronized CommandDTO getRequest(String queryName) {
+        QueryState queryState = sentStates.get(queryName);
+        return (queryState == null) ? null : queryState.request;
+    }
+
+    /**
+     * Forget the query states sent, as the client no longer holds them.
+     */
+    public synchronized void clear() {
+        sentStates.clear();
+    }
+
+    private static QueryStateDiffDTO diffElement(Map<String, JsonNode> previous, Map<String, JsonNode> current) {
+        Map<String, Integer> shifted = new LinkedHashMap<>();
+        Map<String, JsonNode> aligned = align(previous, current, shifted);
+        List<String> removed = new ArrayList<>();
+        for (String key : aligned.keySet()) {
+            if (!current.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            if (!Objects.equals(aligned.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new QueryStateDiffDTO(shifted, removed, changed);
+    }
+
+    /**
+     * Shift the indexed fields of the previous entries to line up with the current entries, in the same way the
+     * client shifts them.
+     */
+    private static Map<String, JsonNode> align(Map<String, JsonNode> previous, Map<String, JsonNode> current,
+                                               Map<String, Integer> shifted) {
+        Map<String, TreeMap<Integer, JsonNode>> previousFields = getIndexedFields(previous);
+        Map<String, TreeMap<Integer, JsonNode>> currentFields = getIndexedFields(current);
+        Map<String, JsonNode> aligned = new LinkedHashMap<>(previous);
+        for (Map.Entry<String, TreeMap<Integer, JsonNode>> field : previousFields.entrySet()) {
+            TreeMap<Integer, JsonNode> currentField = currentFields.get(field.getKey());
+            if (currentField == null) {
+                continue;
+            }
+            int shift = findShift(field.getValue(), currentField);
+            if (shift == 0) {
+                continue;
+            }
+            shifted.put(field.getKey(), shift);
+            for (Map.Entry<Integer, JsonNode> entry : field.getValue().entrySet()) {
+                aligned.remove(field.getKey() + "[" + entry.getKey() + "]");
+            }
+            for (Map.Entry<Integer, JsonNode> entry : field.getValue().tailMap(shift).entrySet()) {
+                aligned.put(field.getKey() + "[" + (entry.getKey() - shift) + "]", entry.getValue());
+            }
+        }
+        return aligned;
+    }
+
+    /**
+     * Find the smallest shift which lines up the previous entries of a field with the current ones, or 0 if there
+     * is none.
+     */
+    private static int findShift(TreeMap<Integer, JsonNode> previous, TreeMap<Integer, JsonNode> current) {
+        int maxShift = previous.lastKey() - current.firstKey();
+        for (int shift = 0; shift <= maxShift; shift++) {
+            int overlap = 0;
+            boolean matches = true;
+            for (Map.Entry<Integer, JsonNode> entry : current.entrySet()) {
+                JsonNode previousValue = previous.get(entry.getKey() + shift);
+                if (previousValue == null) {
+                    continue;
+                }
+                if (!previousValue.equals(entry.getValue())) {
+                    matches = false;
+                    break;
+                }
+                overlap++;
+            }
+            if (matches && overlap > 0) {
+                return shift;
+            }
+        }
+        return 0;
+    }
+
+    private static Map<String, TreeMap<Integer, JsonNode>> getIndexedFields(Map<String, JsonNode> entries) {
+        Map<String, TreeMap<Integer, JsonNode>> fields = new HashMap<>();
+        for (Map.Entry<String, JsonNode> entry : entries.entrySet()) {
+            Matcher matcher = INDEXED_KEY.matcher(entry.getKey());
+            if (matcher.matches()) {
+                fields.computeIfAbsent(matcher.group(1), field -> new TreeMap<>())
+                        .put(Integer.parseInt(matcher.group(2)), entry.getValue());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * The page of a query state last sent to the client.
+     */
+    private static class QueryState {
+
+        private final CommandDTO request;
+        private final long version;
+        private final Map<String, Map<String, JsonNode>> entries;
+
+        QueryState(CommandDTO request, long version, Map<String, Map<String, JsonNode>> entries) {
+            this.request = request;
+            this.version = version;
+            this.entries = entries;
+        }
+
+        boolean isSamePage(CommandDTO other) {
+            return Objects.equals(request.getElements(), other.getElements()) &&
+                    Objects.equals(request.getOffset(), other.getOffset()) &&
+                    Objects.equals(request.getLimit(), other.getLimit());
+        }
+    }
+}
@@ -22,14 +22,28 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.channel.Channel;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
 import org.wso2.siddhi.sdk.launcher.debug.dto.CommandDTO;
 import org.wso2.siddhi.sdk.launcher.debug.dto.MessageDTO;
 import org.wso2.siddhi.sdk.launcher.debug.internal.DebugRuntime;
+import org.wso2.siddhi.sdk.launcher.debug.internal.QueryRegistry;
+import org.wso2.siddhi.sdk.launcher.debug.internal.QueryStateSnapshot;
 import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+import org.wso2.siddhi.sdk.launcher.persistence.StatePersister;
+import org.wso2.siddhi.sdk.launcher.util.Constants;
 import org.wso2.siddhi.sdk.launcher.util.InputFeeder;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@code VMDebugManager} Manages debug sessions and handle debug related actions.
@@ -38,22 +52,34 @@ public class VMDebugManager {
 
     private static final Logger log = Logger.getLogger(VMDebugManager.class);
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Number of debug commands which can wait to be processed.
+     */
+    private static final int COMMAND_QUEUE_CAPACITY = 256;
+
     private static VMDebugManager debugManagerInstance = null;
     private static SiddhiManager siddhiManager = new SiddhiManager();
     private VMDebugServer debugServer;
     /**
-     * Object to hold debug session related context.
+     * Debug sessions of the Siddhi apps being debugged, by the app name.
      */
-    private VMDebugSession debugSession;
-    private boolean debugManagerInitialized = false;
-    private InputFeeder inputFeeder = null;
+    private final Map<String, VMDebugSession> debugSessions = new ConcurrentHashMap<>();
+    private boolean debugServerStarted = false;
+    private StatePersister statePersister;
+    private final ThreadPoolExecutor commandProcessor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(COMMAND_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "Siddhi Debug Command Processor");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     /**
      * Instantiates a new Debug manager.
      */
     private VMDebugManager() {
         debugServer = new VMDebugServer();
-        debugSession = new VMDebugSession();
     }
 
     /**
@@ -75,8 +101,18 @@ public class VMDebugManager {
         return debugManagerInstance;
     }
 
-    public VMDebugSession getDebugSession() {
-        return debugSession;
+    /**
+     * Get the debug session of a Siddhi app.
+     *
+     * @param siddhiAppName name of the Siddhi app
+     * @return the debug session, or null if the app is not being debugged
+     */
+    public VMDebugSession getDebugSession(String siddhiAppName) {
+        return debugSessions.get(siddhiAppName);
+    }
+
+    public Collection<VMDebugSession> getDebugSessions() {
+        return debugSessions.values();
     }
 
     public SiddhiManager getSiddhiManager() {
@@ -84,61 +120,135 @@ public class VMDebugManager {
     }
 
     /**
-     * Initializes the debug manager single instance.
+     * Adds a Siddhi app to debug. All the apps share the siddhi manager and the debug server, and clients connect
+     * to an app on the {@code /debug/<app name>} path of the debug server.
+     *
+     * @param siddhiAppPath path to the siddhiApp file
+     * @param siddhiApp     the siddhiApp
+     * @param inputFilePath path to the event input file, or empty
      */
-    public void mainInit(String siddhiAppPath, String siddhiApp, String inputFile) {
-        if (debugManagerInitialized) {
-            throw new DebugException("Debugger instance already initialized");
-        }
+    public synchronized void mainInit(String siddhiAppPath, String siddhiApp, String inputFilePath) {
         File f = new File(siddhiAppPath);
         String fileName = f.getName();
-        DebugRuntime debugRuntime = new DebugRuntime(fileName, siddhiApp);
+        String siddhiAppName = SiddhiAppUtils.getAppName(siddhiApp, fileName);
+        if (debugSessions.containsKey(siddhiAppName)) {
+            throw new DebugException("Siddhi App " + siddhiAppName + " is already being debugged");
+        }
+        if (statePersister == null && StatePersister.isEnabled()) {
+            // The store is set before the first runtime is created, and is shared by the apps being debugged
+            statePersister = new StatePersister();
+            statePersister.configure(siddhiManager);
+            statePersister.start();
+        }
+        VMDebugSession debugSession = new VMDebugSession(siddhiAppName);
+        DebugRuntime debugRuntime = new DebugRuntime(fileName, siddhiApp, debugSession);
         debugSession.setDebugRuntime(debugRuntime);
-        if (!(inputFile == null || inputFile.equalsIgnoreCase(""))) {
-            inputFeeder = new InputFeeder(debugRuntime.getSiddhiAppRuntime(), inputFile);
+        if (statePersister != null) {
+            // Only a runtime which is being debugged has state, the runtime created when debugging stops is not run
+            statePersister.add(() -> debugRuntime.isDebugging() ? debugRuntime.getSiddhiAppRuntime() : null);
+        }
+        if (!(inputFilePath == null || inputFilePath.equalsIgnoreCase(""))) {
+            debugSession.setInputFeeder(new InputFeeder(debugRuntime.getSiddhiAppRuntime(), inputFilePath));
         }
+        debugSessions.put(siddhiAppName, debugSession);
         // start the debug server if it is not started yet.
-        debugServer.startServer();
-        debugManagerInitialized = true;
+        if (!debugServerStarted) {
+            debugServer.startServer();
+            debugServerStarted = true;
+        }
+    }
+
+    /**
+     * Queue a debug command to be processed by the command processor thread, in the order the commands are received.
+     * Commands are processed off the debug server threads, so that a slow command does not hold up the messages
+     * sent to the clients.
+     *
+     * @param client the client which sent the command
+     * @param json   the json
+     */
+    public void submitDebugCommand(DebugClient client, String json) {
+        try {
+            commandProcessor.execute(() -> processDebugCommand(client, json));
+        } catch (RejectedExecutionException e) {
+            MessageDTO message = new MessageDTO();
+            message.setCode(DebugConstants.CODE_INVALID);
+            message.setMessage(DebugConstants.MSG_BUSY);
+            debugServer.pushMessageToClient(client, message);
+        }
     }
 
     /**
      * Process debug command.
      *
-     * @param json the json
+     * @param client the client which sent the command
+     * @param json   the json
      */
-    public void processDebugCommand(String json) {
+    public void processDebugCommand(DebugClient client, String json) {
+        CommandDTO command = null;
         try {
-            processCommand(json);
+            command = parseCommand(json);
+            processCommand(client, command);
         } catch (Exception e) {
             MessageDTO message = new MessageDTO();
             message.setCode(DebugConstants.CODE_INVALID);
             message.setMessage(e.getMessage());
-            debugServer.pushMessageToClient(debugSession, message);
+            if (command != null) {
+                message.setCommandId(command.getId());
+            }
+            debugServer.pushMessageToClient(client, message);
         }
     }
 
-    private void processCommand(String json) {
-        ObjectMapper mapper = new ObjectMapper();
-        CommandDTO command = null;
+    private CommandDTO parseCommand(String json) {
         try {
-            command = mapper.readValue(json, CommandDTO.class);
+            return OBJECT_MAPPER.readValue(json, CommandDTO.class);
         } catch (IOException e) {
             //invalid message will be passed
             throw new DebugException(DebugConstants.MSG_INVALID);
         }
+    }
+
+    private void processCommand(DebugClient client, CommandDTO command) {
+        VMDebugSession debugSession = client.getDebugSession();
+        // Clients other than the one connected first observe the session, they can only read the query states
+        if (!client.isController() && !DebugConstants.CMD_GET_QUERY_STATE.equals(command.getCommand())) {
+            throw new DebugException(DebugConstants.MSG_OBSERVER);
+        }
+        InputFeeder inputFeeder = debugSession.getInputFeeder();
         switch (command.getCommand()) {
             case DebugConstants.CMD_RESUME:
                 debugSession
                         .getDebugRuntime()
-                        .getDebugger()
                         .play();
+                sendAcknowledge(client, command.getId(), "Resumed.");
                 break;
             case DebugConstants.CMD_STEP_OVER:
                 debugSession
                         .getDebugRuntime()
-                        .getDebugger()
                         .next();
+                sendAcknowledge(client, command.getId(), "Stepped.");
+                break;
+            case DebugConstants.CMD_STEP_N:
+                // we expect { "command": "STEP_N", "count": 10000 }
+                debugSession
+                        .getDebugRuntime()
+                        .stepEvents(getRequired(command.getCount(), "count"));
+                sendAcknowledge(client, command.getId(), "Stepping.");
+                break;
+            case DebugConstants.CMD_RUN_UNTIL_OUTPUT:
+                // we expect { "command": "RUN_UNTIL_OUTPUT", "queryName": "query1", "count": 100 }
+                debugSession
+                        .getDebugRuntime()
+                        .runUntilOutputs(getRequired(command.getQueryName(), "queryName"),
+                                getRequired(command.getCount(), "count"));
+                sendAcknowledge(client, command.getId(), "Running until output.");
+                break;
+            case DebugConstants.CMD_RUN_UNTIL_TIMESTAMP:
+                // we expect { "command": "RUN_UNTIL_TIMESTAMP", "timestamp": 1500000000000 }
+                debugSession
+                        .getDebugRuntime()
+                        .runUntilTimestamp(getRequired(command.getTimestamp(), "timestamp"));
+                sendAcknowledge(client, command.getId(), "Running until timestamp.");
                 break;
             case DebugConstants.CMD_STOP:
                 if (inputFeeder != null) {
@@ -150,20 +260,36 @@ public class VMDebugManager {
                 break;
             case DebugConstants.CMD_SET_POINTS:
                 // we expect { "command": "SET_POINTS",points: [{ "fileName": "sample.siddhi",
-                // "lineNumber" : 5,"queryIndex": 0, "queryTerminal": "IN" }, {...}]}
+                // "lineNumber" : 5,"queryIndex": 0, "queryTerminal": "IN", "condition": "price > 100" }, {...}]}
                 debugSession.addDebugPoints(command.getPoints());
-                sendAcknowledge(debugSession, "Debug points updated");
+                sendAcknowledge(client, command.getId(), "Debug points updated");
                 break;
             case DebugConstants.CMD_REMOVE_BREAKPOINT:
                 // we expect { "command": "REMOVE_BREAKPOINT",points: [{ "fileName": "sample.siddhi",
                 // "lineNumber" : 5,"queryIndex": 0, "queryTerminal": "IN" }]}
                 debugSession.removeDebugPoints(command.getPoints());
-                sendAcknowledge(debugSession, "Debug point removed");
+                sendAcknowledge(client, command.getId(), "Debug point removed");
+                break;
+            case DebugConstants.CMD_SET_LOGPOINTS:
+                // we expect { "command": "SET_LOGPOINTS", logPoints: [{ "fileName": "sample.siddhi",
+                // "queryIndex": 0, "queryTerminal": "OUT", "hitCount": 1, "sampleRate": 10,
+                // "maxRecordsPerSecond": 100 }, {...}]}
+                debugSession.addLogPoints(command.getLogPoints());
+                sendAcknowledge(client, command.getId(), "Log points updated");
+                break;
+            case DebugConstants.CMD_REMOVE_LOGPOINTS:
+                debugSession.removeLogPoints(command.getLogPoints());
+                sendAcknowledge(client, command.getId(), "Log points removed");
+                break;
+            case DebugConstants.CMD_GET_QUERY_STATE:
+                // we expect { "command": "GET_QUERY_STATE", "queryName": "query1", "queryStateVersion": 3,
+                // "elements": ["query1-window"], "offset": 0, "limit": 100, "resync": false }
+                sendQueryState(client, command);
                 break;
             case DebugConstants.CMD_SEND_EVENT:
                 if (inputFeeder != null) {
                     inputFeeder.start();
-                    sendAcknowledge(debugSession, "Input feeder started.");
+                    sendAcknowledge(client, command.getId(), "Input feeder started.");
                 } else {
                     log.info("Input file is empty or null");
                 }
@@ -171,7 +297,7 @@ public class VMDebugManager {
             case DebugConstants.CMD_START:
                 // Client needs to explicitly start the execution once connected.
                 debugSession.startDebug();
-                sendAcknowledge(debugSession, "Debug started.");
+                sendAcknowledge(client, command.getId(), "Debug started.");
                 break;
             default:
                 throw new DebugException(DebugConstants.MSG_INVALID);
@@ -179,17 +305,57 @@ public class VMDebugManager {
     }
 
     /**
-     * Set debug channel.
+     * Connect a debug client to the debug session of a Siddhi app.
      *
-     * @param channel the channel
+     * @param siddhiAppName name of the Siddhi app, or null if only one app is being debugged
+     * @param channel       the channel of the client
+     * @return the client
      */
-    public void addDebugSession(Channel channel) throws DebugException {
-        debugSession.setChannel(channel);
-        sendAcknowledge(debugSession, "Channel registered.");
+    public DebugClient addDebugClient(String siddhiAppName, Channel channel) throws DebugException {
+        VMDebugSession debugSession;
+        if (siddhiAppName != null) {
+            debugSession = debugSessions.get(siddhiAppName);
+        } else if (debugSessions.size() == 1) {
+            debugSession = debugSessions.values().iterator().next();
+        } else {
+            throw new DebugException("Siddhi App name is required, as " + debugSessions.size() +
+                    " Siddhi Apps are being debugged");
+        }
+        if (debugSession == null) {
+            throw new DebugException("Siddhi App " + siddhiAppName + " is not being debugged");
+        }
+        int queueSize = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_DEBUG_QUEUE_SIZE,
+                Constants.DEFAULT_DEBUG_QUEUE_SIZE, 1);
+        DebugClient client = new DebugClient(debugSession, channel, new DebugMessageWriter(channel, queueSize,
+                getOverflowPolicy(), debugSession::pauseInputFeeder, debugSession::resumeInputFeeder));
+        debugSession.addClient(client);
+        sendAcknowledge(client, null, client.isController() ? "Channel registered." :
+                "Channel registered as an observer.");
+        return client;
     }
 
-    private boolean isDebugSessionActive() {
-        return (debugSession.getChannel() != null);
+    /**
+     * Disconnect a debug client.
+     *
+     * @param client the client
+     */
+    public void removeDebugClient(DebugClient client) {
+        client.getDebugSession().removeClient(client);
+        client.close();
+    }
+
+    private DebugMessageWriter.OverflowPolicy getOverflowPolicy() {
+        String policy = System.getProperty(Constants.SYSTEM_PROP_DEBUG_OVERFLOW_POLICY);
+        if (policy == null || policy.equals("")) {
+            return DebugMessageWriter.OverflowPolicy.DROP_OLDEST;
+        }
+        try {
+            return DebugMessageWriter.OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid value " + policy + " for " + Constants.SYSTEM_PROP_DEBUG_OVERFLOW_POLICY + ", using "
+                    + DebugMessageWriter.OverflowPolicy.DROP_OLDEST);
+            return DebugMessageWriter.OverflowPolicy.DROP_OLDEST;
+        }
     }
 
     /**
@@ -201,17 +367,116 @@ public class VMDebugManager {
     public void notifyDebugHit(VMDebugSession debugSession, BreakPointInfo breakPointInfo) {
         MessageDTO message = new MessageDTO();
         message.setCode(DebugConstants.CODE_HIT);
-        message.setMessage(DebugConstants.MSG_HIT);
+        message.setMessage(breakPointInfo.isRunTargetReached() ? DebugConstants.MSG_TARGET_REACHED :
+                DebugConstants.MSG_HIT);
         message.setEventInfo(breakPointInfo.getEventInfo());
         message.setQueryName(breakPointInfo.getQueryName());
-        message.setQueryState(breakPointInfo.getQueryState());
+        message.setQueryStateSummary(breakPointInfo.getQueryStateSummary());
+        message.setQueryStateVersion(breakPointInfo.getQueryStateVersion());
+        if (breakPointInfo.getQueryLine() != QueryRegistry.UNKNOWN_QUERY_LINE) {
+            message.setQueryLine(breakPointInfo.getQueryLine());
+        }
 
         String fileName = breakPointInfo.getFileName();
         int queryIndex = breakPointInfo.getQueryIndex();
         String queryTerminal = breakPointInfo.getQueryTerminal();
 
         message.setLocation(fileName, queryIndex, queryTerminal);
-        debugServer.pushMessageToClient(debugSession, message);
+        debugServer.pushMessageToClients(debugSession, message);
+        for (DebugClient client : debugSession.getClients()) {
+            pushQueryStateChanges(client, breakPointInfo.getQueryName(), breakPointInfo.getQueryStateVersion());
+        }
+    }
+
+    /**
+     * Push the changes of the query state page the client last requested for a query that halted again. The
+     * changes are computed by the command processor, so that the query thread only queues the request.
+     */
+    private void pushQueryStateChanges(DebugClient client, String queryName, long version) {
+        CommandDTO request = client.getQueryStateTracker().getRequest(queryName);
+        if (request == null) {
+            return;
+        }
+        try {
+            commandProcessor.execute(() -> {
+                try {
+                    sendQueryState(client, request, version, null, false);
+                } catch (DebugException e) {
+                    // the execution continued before the changes were computed, the client fetches them on demand
+                    if (log.isDebugEnabled()) {
+                        log.debug("Query state of " + queryName + " is not pushed: " + e.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the command processor is busy, the client fetches the changes on demand
+        }
+    }
+
+    /**
+     * Send a message to the debug client when a log point records an event. The message is queued by the message
+     * writer of the session, which applies the overflow policy while the client can not keep up.
+     *
+     * @param debugSession   current debugging session
+     * @param breakPointInfo info of the log point and the recorded event
+     */
+    public void notifyLogHit(VMDebugSession debugSession, BreakPointInfo breakPointInfo) {
+        if (!debugSession.isActive()) {
+            return;
+        }
+        MessageDTO message = new MessageDTO();
+        message.setCode(DebugConstants.CODE_LOG);
+        message.setMessage(DebugConstants.MSG_LOG);
+        message.setEventInfo(breakPointInfo.getEventInfo());
+        message.setQueryName(breakPointInfo.getQueryName());
+        message.setHitCount(breakPointInfo.getHitCount());
+        if (breakPointInfo.getQueryLine() != QueryRegistry.UNKNOWN_QUERY_LINE) {
+            message.setQueryLine(breakPointInfo.getQueryLine());
+        }
+        message.setLocation(breakPointInfo.getFileName(), breakPointInfo.getQueryIndex(),
+                breakPointInfo.getQueryTerminal());
+        debugServer.pushMessageToClients(debugSession, message);
+    }
+
+    private static <T> T getRequired(T value, String name) {
+        if (value == null) {
+            throw new DebugException("Missing " + name + " in the command");
+        }
+        return value;
+    }
+
+    private void sendQueryState(DebugClient client, CommandDTO command) {
+        int offset = (command.getOffset() == null) ? 0 : command.getOffset();
+        int limit = (command.getLimit() == null) ? DebugConstants.DEFAULT_QUERY_STATE_PAGE_SIZE : command.getLimit();
+        if (offset < 0 || limit < 1 || limit > DebugConstants.MAX_QUERY_STATE_PAGE_SIZE) {
+            throw new DebugException("Invalid query state page, offset: " + offset + ", limit: " + limit +
+                    " (at most " + DebugConstants.MAX_QUERY_STATE_PAGE_SIZE + ")");
+        }
+        CommandDTO request = new CommandDTO();
+        request.setQueryName(command.getQueryName());
+        request.setElements(command.getElements());
+        request.setOffset(offset);
+        request.setLimit(limit);
+        sendQueryState(client, request, command.getQueryStateVersion(), command.getId(),
+                Boolean.TRUE.equals(command.getResync()));
+    }
+
+    private void sendQueryState(DebugClient client, CommandDTO request, Long version, String commandId,
+                                boolean resync) {
+        QueryStateSnapshot queryState = client.getDebugSession().getDebugRuntime().getQueryState(request.getQueryName(),
+                version);
+        if (request.getQueryName() == null) {
+            request.setQueryName(queryState.getQueryName());
+        }
+        MessageDTO message = new MessageDTO();
+        message.setCode(DebugConstants.CODE_QUERY_STATE);
+        message.setMessage(DebugConstants.MSG_QUERY_STATE);
+        message.setCommandId(commandId);
+        message.setQueryName(queryState.getQueryName());
+        message.setQueryStateVersion(queryState.getVersion());
+        client.getQueryStateTracker().setQueryState(message, request, queryState.getVersion(),
+                queryState.getPage(request.getElements(), request.getOffset(), request.getLimit()), resync);
+        debugServer.pushMessageToClient(client, message);
     }
 
     /**
@@ -223,7 +488,7 @@ public class VMDebugManager {
         MessageDTO message = new MessageDTO();
         message.setCode(DebugConstants.CODE_COMPLETE);
         message.setMessage(DebugConstants.MSG_COMPLETE);
-        debugServer.pushMessageToClient(debugSession, message);
+        debugServer.pushMessageToClients(debugSession, message);
     }
 
     /**
@@ -232,25 +497,27 @@ public class VMDebugManager {
      * @param debugSession current debugging session
      */
     public void notifyExit(VMDebugSession debugSession) {
-        if (!isDebugSessionActive()) {
+        if (!debugSession.isActive()) {
             return;
         }
         MessageDTO message = new MessageDTO();
         message.setCode(DebugConstants.CODE_EXIT);
         message.setMessage(DebugConstants.MSG_EXIT);
-        debugServer.pushMessageToClient(debugSession, message);
+        debugServer.pushMessageToClients(debugSession, message);
     }
 
     /**
-     * Send a generic acknowledge message to the client.
+     * Send an acknowledge message for a command to the client.
      *
-     * @param debugSession current debugging session
-     * @param messageText  message to send to the client
+     * @param client      the client which sent the command
+     * @param commandId   id the client gave to the command, or null
+     * @param messageText message to send to the client
      */
-    private void sendAcknowledge(VMDebugSession debugSession, String messageText) {
+    private void sendAcknowledge(DebugClient client, String commandId, String messageText) {
         MessageDTO message = new MessageDTO();
         message.setCode(DebugConstants.CODE_ACK);
         message.setMessage(messageText);
-        debugServer.pushMessageToClient(debugSession, message);
+        message.setCommandId(commandId);
+        debugServer.pushMessageToClient(client, message);
     }
 }
@@ -17,21 +17,21 @@
 */
 package org.wso2.siddhi.sdk.launcher.debug;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Log4JLoggerFactory;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
 import org.wso2.siddhi.sdk.launcher.debug.dto.MessageDTO;
 import org.wso2.siddhi.sdk.launcher.util.Constants;
 
@@ -63,6 +63,7 @@ public class VMDebugServer {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
                     .channel(NioServerSocketChannel.class)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, getWriteBufferWaterMark())
                     .childHandler(new DebugServerInitializer());
             Channel ch = b.bind(port).sync().channel();
 
@@ -83,19 +84,23 @@ public class VMDebugServer {
     /**
      * Push message to client.
      *
+     * @param client the client
+     * @param status debug point information
+     */
+    public void pushMessageToClient(DebugClient client, MessageDTO status) {
+        client.write(status);
+    }
+
+    /**
+     * Push message to all the clients of a debug session.
+     *
      * @param debugSession current debugging session
      * @param status       debug point information
      */
-    public void pushMessageToClient(VMDebugSession debugSession, MessageDTO status) {
-        ObjectMapper mapper = new ObjectMapper();
-        String json;
-        try {
-            json = mapper.writeValueAsString(status);
-        } catch (JsonProcessingException e) {
-            json = DebugConstants.ERROR_JSON;
+    public void pushMessageToClients(VMDebugSession debugSession, MessageDTO status) {
+        for (DebugClient client : debugSession.getClients()) {
+            client.write(status);
         }
-        debugSession.getChannel().write(new TextWebSocketFrame(json));
-        debugSession.getChannel().flush();
     }
 
     private int getDebugPort() {
@@ -106,6 +111,14 @@ public class VMDebugServer {
         return Integer.parseInt(debugPort);
     }
 
+    private WriteBufferWaterMark getWriteBufferWaterMark() {
+        int low = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_DEBUG_WRITE_BUFFER_LOW,
+                Constants.DEFAULT_DEBUG_WRITE_BUFFER_LOW, 1);
+        int high = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_DEBUG_WRITE_BUFFER_HIGH,
+                Constants.DEFAULT_DEBUG_WRITE_BUFFER_HIGH, low);
+        return new WriteBufferWaterMark(low, high);
+    }
+
     /**
      * Debug server initializer class.
      */
@@ -34,6 +34,8 @@ import org.slf4j.LoggerFactory;
 import org.wso2.siddhi.sdk.launcher.exception.DebugException;
 
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 
 import static io.netty.handler.codec.http.HttpHeaders.Names.HOST;
 import static io.netty.handler.codec.http.HttpMethod.GET;
@@ -49,6 +51,8 @@ public class VMDebugServerHandler extends SimpleChannelInboundHandler<Object> {
 
     private WebSocketServerHandshaker handshaker;
 
+    private DebugClient client;
+
     private void sendHttpResponse(ChannelHandlerContext ctx, FullHttpRequest req, FullHttpResponse res) {
         // Generate an error page if response getStatus code is not OK (200).
         if (res.status().code() != OK.code()) {
@@ -66,10 +70,30 @@ public class VMDebugServerHandler extends SimpleChannelInboundHandler<Object> {
     }
 
     private String getWebSocketLocation(FullHttpRequest req) {
-        String location = req.headers().get(HOST) + DebugConstants.DEBUG_WEBSOCKET_PATH;
+        String location = req.headers().get(HOST) + req.uri();
         return "ws://" + location;
     }
 
+    /**
+     * Get the name of the Siddhi app a client connects to, from a {@code /debug/<app name>} path.
+     *
+     * @return the app name, null for the {@code /debug} path, or an empty string for any other path
+     */
+    private static String getSiddhiAppName(String uri) {
+        if (DebugConstants.DEBUG_WEBSOCKET_PATH.equals(uri)) {
+            return null;
+        }
+        String prefix = DebugConstants.DEBUG_WEBSOCKET_PATH + "/";
+        if (!uri.startsWith(prefix) || uri.length() == prefix.length()) {
+            return "";
+        }
+        try {
+            return URLDecoder.decode(uri.substring(prefix.length()), CharsetUtil.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return "";
+        }
+    }
+
     @Override
     public void channelRead0(ChannelHandlerContext ctx, Object msg) {
         if (msg instanceof FullHttpRequest) {
@@ -84,6 +108,23 @@ public class VMDebugServerHandler extends SimpleChannelInboundHandler<Object> {
         ctx.flush();
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (client != null && ctx.channel().isWritable()) {
+            client.getMessageWriter().onWritable();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (client != null) {
+            VMDebugManager.getInstance().removeDebugClient(client);
+            client = null;
+        }
+        ctx.fireChannelInactive();
+    }
+
     private void handleHttpRequest(ChannelHandlerContext ctx, FullHttpRequest req) {
         // Handle a bad request.
         if (!req.decoderResult().isSuccess()) {
@@ -97,7 +138,8 @@ public class VMDebugServerHandler extends SimpleChannelInboundHandler<Object> {
             return;
         }
 
-        if (!DebugConstants.DEBUG_WEBSOCKET_PATH.equals(req.uri())) {
+        String siddhiAppName = getSiddhiAppName(req.uri());
+        if ("".equals(siddhiAppName)) {
             FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, NOT_FOUND);
             sendHttpResponse(ctx, req, res);
             return;
@@ -112,9 +154,9 @@ public class VMDebugServerHandler extends SimpleChannelInboundHandler<Object> {
         } else {
             VMDebugManager debugManager = VMDebugManager.getInstance();
             try {
-                debugManager.addDebugSession(ctx.channel());
+                client = debugManager.addDebugClient(siddhiAppName, ctx.channel());
             } catch (DebugException e) {
-                FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, TOO_MANY_REQUESTS);
+                FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, NOT_FOUND);
                 sendHttpResponse(ctx, req, res);
                 return;
             }
@@ -140,7 +182,7 @@ public class VMDebugServerHandler extends SimpleChannelInboundHandler<Object> {
 
         String request = ((TextWebSocketFrame) frame).text();
         VMDebugManager debugManager = VMDebugManager.getInstance();
-        debugManager.processDebugCommand(request);
+        debugManager.submitDebugCommand(client, request);
     }
 
     @Override
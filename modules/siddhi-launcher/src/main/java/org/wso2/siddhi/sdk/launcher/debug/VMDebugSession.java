@@ -19,24 +19,44 @@
 
 package org.wso2.siddhi.sdk.launcher.debug;
 
-import io.netty.channel.Channel;
 import org.wso2.siddhi.core.debugger.SiddhiDebugger;
 import org.wso2.siddhi.sdk.launcher.debug.dto.BreakPointDTO;
+import org.wso2.siddhi.sdk.launcher.debug.dto.LogPointDTO;
 import org.wso2.siddhi.sdk.launcher.debug.internal.DebugRuntime;
-import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+import org.wso2.siddhi.sdk.launcher.util.InputFeeder;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * {@code VMDebugSession} The Debug Session class will be used to hold context for each client.
- * Each client will get its own instance of debug session.
+ * {@code VMDebugSession} The Debug Session class will be used to hold context for each Siddhi app being debugged.
+ * Each app gets its own instance of debug session, which any number of clients can connect to.
  */
 public class VMDebugSession {
 
-    private Channel channel = null;
+    private final String siddhiAppName;
+
+    private final List<DebugClient> clients = new CopyOnWriteArrayList<>();
 
     private DebugRuntime debugRuntime = null;
 
+    private volatile InputFeeder inputFeeder = null;
+
+    /**
+     * Number of clients which paused the input feeder as they could not keep up.
+     */
+    private final AtomicInteger feederPauses = new AtomicInteger();
+
+    public VMDebugSession(String siddhiAppName) {
+        this.siddhiAppName = siddhiAppName;
+    }
+
+    public String getSiddhiAppName() {
+        return siddhiAppName;
+    }
+
     public DebugRuntime getDebugRuntime() {
         return debugRuntime;
     }
@@ -45,6 +65,35 @@ public class VMDebugSession {
         this.debugRuntime = debugRuntime;
     }
 
+    public InputFeeder getInputFeeder() {
+        return inputFeeder;
+    }
+
+    public void setInputFeeder(InputFeeder inputFeeder) {
+        this.inputFeeder = inputFeeder;
+    }
+
+    /**
+     * Pause the input feeder for a client which can not keep up. The feeder stays paused until all the clients
+     * which paused it resume it.
+     */
+    public void pauseInputFeeder() {
+        InputFeeder feeder = inputFeeder;
+        if (feederPauses.getAndIncrement() == 0 && feeder != null) {
+            feeder.pause();
+        }
+    }
+
+    /**
+     * Resume the input feeder for a client which paused it.
+     */
+    public void resumeInputFeeder() {
+        InputFeeder feeder = inputFeeder;
+        if (feederPauses.decrementAndGet() == 0 && feeder != null) {
+            feeder.resume();
+        }
+    }
+
     /**
      * Sets debug points.
      *
@@ -74,8 +123,8 @@ public class VMDebugSession {
                         // acquire only specified break point
                         SiddhiDebugger.QueryTerminal terminal = ("in".equalsIgnoreCase(queryTerminal)) ?
                                 SiddhiDebugger.QueryTerminal.IN : SiddhiDebugger.QueryTerminal.OUT;
-                        String queryName = (String) debugRuntime.getQueries().toArray()[queryIndex];
-                        debugRuntime.getDebugger().acquireBreakPoint(queryName, terminal);
+                        String queryName = debugRuntime.getQueryRegistry().getQueryName(queryIndex);
+                        debugRuntime.acquireBreakPoint(queryName, terminal, breakPointDTO.getCondition());
                     }
                 }
             }
@@ -101,8 +150,8 @@ public class VMDebugSession {
                             // acquire only specified break point
                             SiddhiDebugger.QueryTerminal terminal = ("in".equalsIgnoreCase(queryTerminal)) ?
                                     SiddhiDebugger.QueryTerminal.IN : SiddhiDebugger.QueryTerminal.OUT;
-                            String queryName = (String) debugRuntime.getQueries().toArray()[queryIndex];
-                            debugRuntime.getDebugger().releaseBreakPoint(queryName, terminal);
+                            String queryName = debugRuntime.getQueryRegistry().getQueryName(queryIndex);
+                            debugRuntime.releaseBreakPoint(queryName, terminal);
                         }
                     }
                 }
@@ -111,19 +160,81 @@ public class VMDebugSession {
     }
 
     /**
-     * Gets channel.
+     * Sets log points.
      *
-     * @return the channel
+     * @param logPoints the log points
      */
-    public synchronized Channel getChannel() {
-        return channel;
+    public void addLogPoints(List<LogPointDTO> logPoints) {
+        for (LogPointDTO logPointDTO : logPoints) {
+            if (isApplicable(logPointDTO)) {
+                String queryName = debugRuntime.getQueryRegistry().getQueryName(logPointDTO.getQueryIndex());
+                debugRuntime.setLogPoint(queryName, getQueryTerminal(logPointDTO), logPointDTO);
+            }
+        }
     }
 
-    public synchronized void setChannel(Channel channel) throws DebugException {
-        if (this.channel != null) {
-            throw new DebugException("Debug session already exist");
+    /**
+     * Removes log points.
+     *
+     * @param logPoints the log points
+     */
+    public void removeLogPoints(List<LogPointDTO> logPoints) {
+        for (LogPointDTO logPointDTO : logPoints) {
+            if (isApplicable(logPointDTO)) {
+                String queryName = debugRuntime.getQueryRegistry().getQueryName(logPointDTO.getQueryIndex());
+                debugRuntime.removeLogPoint(queryName, getQueryTerminal(logPointDTO));
+            }
         }
-        this.channel = channel;
+    }
+
+    /**
+     * Checks whether a debug point refers to a query terminal of the current debug file.
+     */
+    private boolean isApplicable(BreakPointDTO breakPointDTO) {
+        return breakPointDTO != null && breakPointDTO.getFileName() != null &&
+                breakPointDTO.getFileName().equalsIgnoreCase(debugRuntime.getSiddhiAppFileName()) &&
+                breakPointDTO.getQueryTerminal() != null && !breakPointDTO.getQueryTerminal().isEmpty();
+    }
+
+    private static SiddhiDebugger.QueryTerminal getQueryTerminal(BreakPointDTO breakPointDTO) {
+        return ("in".equalsIgnoreCase(breakPointDTO.getQueryTerminal())) ?
+                SiddhiDebugger.QueryTerminal.IN : SiddhiDebugger.QueryTerminal.OUT;
+    }
+
+    /**
+     * Connect a client to the session.
+     *
+     * @param client the client
+     */
+    public void addClient(DebugClient client) {
+        clients.add(client);
+    }
+
+    /**
+     * Disconnect a client from the session.
+     *
+     * @param client the client
+     */
+    public void removeClient(DebugClient client) {
+        clients.remove(client);
+    }
+
+    public List<DebugClient> getClients() {
+        return clients;
+    }
+
+    /**
+     * Get the client which controls the session.
+     *
+     * @return the client connected first, or null if no client is connected
+     */
+    public DebugClient getController() {
+        Iterator<DebugClient> iterator = clients.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    public boolean isActive() {
+        return !clients.isEmpty();
     }
 
     /**
@@ -138,14 +249,19 @@ public class VMDebugSession {
      */
     public void stopDebug() {
         debugRuntime.stop();
+        for (DebugClient client : clients) {
+            client.getQueryStateTracker().clear();
+        }
     }
 
     /**
-     * Method to clear the channel so that another debug session can connect.
+     * Method to disconnect all the clients so that another debug session can connect.
      */
-    public synchronized void clearSession() {
-        this.channel.close();
-        this.channel = null;
+    public void clearSession() {
+        for (DebugClient client : clients) {
+            clients.remove(client);
+            client.close();
+        }
     }
 
     public void notifyComplete() {
@@ -162,4 +278,9 @@ public class VMDebugSession {
         VMDebugManager debugManager = VMDebugManager.getInstance();
         debugManager.notifyDebugHit(this, breakPointInfo);
     }
+
+    public void notifyLog(BreakPointInfo breakPointInfo) {
+        VMDebugManager debugManager = VMDebugManager.getInstance();
+        debugManager.notifyLogHit(this, breakPointInfo);
+    }
 }
@@ -29,6 +29,8 @@ public class BreakPointDTO {
 
     private String queryTerminal;
 
+    private String condition;
+
     //DO not remove this constructor. This is used in the GSON to covert data from a json string to actual class
     public BreakPointDTO() {
 
@@ -63,4 +65,12 @@ public class BreakPointDTO {
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
 }
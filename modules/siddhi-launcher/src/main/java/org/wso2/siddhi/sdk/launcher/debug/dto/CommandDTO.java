@@ -25,10 +25,43 @@ import java.util.List;
  */
 public class CommandDTO {
 
+    private String id;
+
     private String command;
 
     private List<BreakPointDTO> points;
 
+    private List<LogPointDTO> logPoints;
+
+    private String queryName;
+
+    private Long queryStateVersion;
+
+    private List<String> elements;
+
+    private Integer offset;
+
+    private Integer limit;
+
+    private Boolean resync;
+
+    private Long count;
+
+    private Long timestamp;
+
+    /**
+     * Get the id the client gave to the command, which is sent back in the acknowledgement of the command.
+     *
+     * @return the id, or null
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getCommand() {
         return command;
     }
@@ -44,4 +77,101 @@ public class CommandDTO {
     public void setPoints(List<BreakPointDTO> points) {
         this.points = points;
     }
+
+    public List<LogPointDTO> getLogPoints() {
+        return logPoints;
+    }
+
+    public void setLogPoints(List<LogPointDTO> logPoints) {
+        this.logPoints = logPoints;
+    }
+
+    public String getQueryName() {
+        return queryName;
+    }
+
+    public void setQueryName(String queryName) {
+        this.queryName = queryName;
+    }
+
+    /**
+     * Get the version of the query state the client expects, as given in the breakpoint hit.
+     *
+     * @return the version, or null to accept any version
+     */
+    public Long getQueryStateVersion() {
+        return queryStateVersion;
+    }
+
+    public void setQueryStateVersion(Long queryStateVersion) {
+        this.queryStateVersion = queryStateVersion;
+    }
+
+    /**
+     * Get the names of the query state elements requested.
+     *
+     * @return the names, or null for all the elements
+     */
+    public List<String> getElements() {
+        return elements;
+    }
+
+    public void setElements(List<String> elements) {
+        this.elements = elements;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Check whether the client asks for the whole query state page rather than the changes since it was last sent.
+     *
+     * @return true to resend the whole page, otherwise false or null
+     */
+    public Boolean getResync() {
+        return resync;
+    }
+
+    public void setResync(Boolean resync) {
+        this.resync = resync;
+    }
+
+    /**
+     * Get the number of events to step over, or the number of output events to run until.
+     *
+     * @return the count
+     */
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    /**
+     * Get the event timestamp to run until.
+     *
+     * @return the timestamp
+     */
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
 }
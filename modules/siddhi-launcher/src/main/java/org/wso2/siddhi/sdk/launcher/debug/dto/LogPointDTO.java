@@ -0,0 +1,75 @@
+/*
+*  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.wso2.siddhi.sdk.launcher.debug.dto;
+
+/**
+ * Log point DTO class. A log point records the events at a query terminal without halting the execution.
+ */
+public class LogPointDTO extends BreakPointDTO {
+
+    private long hitCount = 1;
+
+    private long sampleRate = 1;
+
+    private int maxRecordsPerSecond = 0;
+
+    //DO not remove this constructor. This is used to covert data from a json string to actual class
+    public LogPointDTO() {
+
+    }
+
+    /**
+     * Get the hit from which the events are recorded.
+     *
+     * @return the hit count, 1 records from the first hit
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * Get the sampling rate of the recorded events.
+     *
+     * @return n to record one in every n hits
+     */
+    public long getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(long sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Get the maximum number of events recorded per second.
+     *
+     * @return the maximum, 0 if the records are not limited
+     */
+    public int getMaxRecordsPerSecond() {
+        return maxRecordsPerSecond;
+    }
+
+    public void setMaxRecordsPerSecond(int maxRecordsPerSecond) {
+        this.maxRecordsPerSecond = maxRecordsPerSecond;
+    }
+}
@@ -30,11 +30,27 @@ public class MessageDTO {
 
     private String message;
 
+    private String commandId;
+
     private String queryName;
 
+    private Integer queryLine;
+
+    private Long hitCount;
+
+    private Long droppedMessages;
+
     private Object eventInfo;
 
-    private Map<String, Object> queryState;
+    private Map<String, Integer> queryStateSummary;
+
+    private Long queryStateVersion;
+
+    private Map<String, Map<String, Object>> queryState;
+
+    private Map<String, QueryStateDiffDTO> queryStateDiff;
+
+    private Long baseQueryStateVersion;
 
     private BreakPointDTO location;
 
@@ -54,14 +70,75 @@ public class MessageDTO {
         this.message = message;
     }
 
-    public Map<String, Object> getQueryState() {
+    public String getCommandId() {
+        return commandId;
+    }
+
+    public void setCommandId(String commandId) {
+        this.commandId = commandId;
+    }
+
+    /**
+     * Get the number of entries of each state element of the query, sent on breakpoint hits in place of the state.
+     *
+     * @return the number of entries by the state element name
+     */
+    public Map<String, Integer> getQueryStateSummary() {
+        return queryStateSummary;
+    }
+
+    public void setQueryStateSummary(Map<String, Integer> queryStateSummary) {
+        this.queryStateSummary = queryStateSummary;
+    }
+
+    public Long getQueryStateVersion() {
+        return queryStateVersion;
+    }
+
+    public void setQueryStateVersion(Long queryStateVersion) {
+        this.queryStateVersion = queryStateVersion;
+    }
+
+    /**
+     * Get a page of the query state, sent in reply to a query state request.
+     *
+     * @return the entries of each requested state element, by the state element name
+     */
+    public Map<String, Map<String, Object>> getQueryState() {
         return queryState;
     }
 
-    public void setQueryState(Map<String, Object> queryState) {
+    public void setQueryState(Map<String, Map<String, Object>> queryState) {
         this.queryState = queryState;
     }
 
+    /**
+     * Get the changes of the query state since the same page of it was last sent, sent in reply to a query state
+     * request in place of the page.
+     *
+     * @return the changes of each requested state element, by the state element name
+     */
+    public Map<String, QueryStateDiffDTO> getQueryStateDiff() {
+        return queryStateDiff;
+    }
+
+    public void setQueryStateDiff(Map<String, QueryStateDiffDTO> queryStateDiff) {
+        this.queryStateDiff = queryStateDiff;
+    }
+
+    /**
+     * Get the version of the query state the changes apply to.
+     *
+     * @return the version, or null if the message carries no changes
+     */
+    public Long getBaseQueryStateVersion() {
+        return baseQueryStateVersion;
+    }
+
+    public void setBaseQueryStateVersion(Long baseQueryStateVersion) {
+        this.baseQueryStateVersion = baseQueryStateVersion;
+    }
+
     public BreakPointDTO getLocation() {
         return location;
     }
@@ -78,6 +155,35 @@ public class MessageDTO {
         this.queryName = queryName;
     }
 
+    public Integer getQueryLine() {
+        return queryLine;
+    }
+
+    public void setQueryLine(Integer queryLine) {
+        this.queryLine = queryLine;
+    }
+
+    public Long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(Long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * Get the number of log point records dropped since the previous message, as the client did not keep up.
+     *
+     * @return the number of dropped records, or null if none were dropped
+     */
+    public Long getDroppedMessages() {
+        return droppedMessages;
+    }
+
+    public void setDroppedMessages(Long droppedMessages) {
+        this.droppedMessages = droppedMessages;
+    }
+
     public Object getEventInfo() {
         return eventInfo;
     }
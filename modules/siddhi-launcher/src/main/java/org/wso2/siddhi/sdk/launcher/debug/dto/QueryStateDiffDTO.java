@@ -0,0 +1,60 @@
+/*
+*  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.wso2.siddhi.sdk.launcher.debug.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO class representing the changes of a query state element since the previous query state sent to the client.
+ * The client applies the changes in order: it shifts the indexed fields, removes the removed entries and sets the
+ * changed entries.
+ */
+public class QueryStateDiffDTO {
+
+    private Map<String, Integer> shifted;
+
+    private List<String> removed;
+
+    private Map<String, Object> changed;
+
+    public QueryStateDiffDTO(Map<String, Integer> shifted, List<String> removed, Map<String, Object> changed) {
+        this.shifted = shifted;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    /**
+     * Get the number of places each indexed field is shifted by. The entries {@code field[index]} of a shifted field
+     * with an index below the shift are removed, and the others are moved to {@code field[index - shift]}.
+     *
+     * @return the shift by the field name
+     */
+    public Map<String, Integer> getShifted() {
+        return shifted;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public Map<String, Object> getChanged() {
+        return changed;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.debug.internal;
+
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.core.stream.output.StreamCallback;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.query.api.execution.query.Query;
+import org.wso2.siddhi.query.api.execution.query.selection.OutputAttribute;
+import org.wso2.siddhi.query.api.expression.Variable;
+import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Condition of a breakpoint, which is a Siddhi filter expression on the attributes of the stream at the breakpoint.
+ * The expression is compiled once into a filter query of its own runtime, and each event is evaluated by sending it
+ * to that query, which runs synchronously in the thread that hit the breakpoint.
+ * <p>
+ * At the in terminal of a query, an event only carries the input attributes the query selects, in the order they are
+ * selected, hence a condition there is evaluated against the selected attributes of the input stream.
+ */
+class BreakPointCondition {
+
+    private static final String CONDITION_STREAM = "BreakPointConditionStream";
+    private static final String MATCH_STREAM = "BreakPointMatchStream";
+
+    private final String condition;
+    private final int attributeCount;
+    private final SiddhiAppRuntime siddhiAppRuntime;
+    private final InputHandler inputHandler;
+    private boolean matched;
+
+    /**
+     * Compile a breakpoint condition.
+     *
+     * @param condition        Siddhi filter expression
+     * @param streamDefinition definition of the stream the condition is evaluated against
+     * @param siddhiManager    siddhi manager to create the runtime of the condition
+     */
+    BreakPointCondition(String condition, StreamDefinition streamDefinition, SiddhiManager siddhiManager) {
+        this.condition = condition;
+        List<Attribute> attributes = streamDefinition.getAttributeList();
+        this.attributeCount = attributes.size();
+        StringJoiner attributeJoiner = new StringJoiner(", ");
+        for (Attribute attribute : attributes) {
+            attributeJoiner.add(attribute.getName() + " " + attribute.getType().toString().toLowerCase());
+        }
+        String conditionApp = "@app:name('BreakPointCondition-" + UUID.randomUUID() + "') " +
+                "define stream " + CONDITION_STREAM + " (" + attributeJoiner + "); " +
+                "from " + CONDITION_STREAM + "[" + condition + "] select * insert into " + MATCH_STREAM + ";";
+        try {
+            siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(conditionApp);
+        } catch (RuntimeException e) {
+            throw new DebugException("Invalid breakpoint condition '" + condition + "' on stream " +
+                    streamDefinition.getId() + ": " + e.getMessage(), e);
+        }
+        siddhiAppRuntime.addCallback(MATCH_STREAM, new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                matched = true;
+            }
+        });
+        siddhiAppRuntime.start();
+        inputHandler = siddhiAppRuntime.getInputHandler(CONDITION_STREAM);
+    }
+
+    /**
+     * Get the attributes an event carries at the in terminal of a query, which are the attributes of the input stream
+     * that the query selects, each once in the order they are first selected.
+     *
+     * @param query            single stream query
+     * @param streamDefinition definition of the input stream of the query
+     * @return a definition of the input stream holding the selected attributes
+     * @throws DebugException if the query selects anything other than plain attributes of the input stream
+     */
+    static StreamDefinition getInTerminalDefinition(Query query, StreamDefinition streamDefinition) {
+        List<OutputAttribute> selectionList = query.getSelector().getSelectionList();
+        if (selectionList.isEmpty()) {
+            // select * carries every attribute of the stream in the order of its definition
+            return streamDefinition;
+        }
+        Set<String> selectedNames = new LinkedHashSet<>();
+        for (OutputAttribute outputAttribute : selectionList) {
+            if (!(outputAttribute.getExpression() instanceof Variable)) {
+                throw new DebugException("Breakpoint conditions at the in terminal are only supported on queries " +
+                        "which select plain attributes of stream " + streamDefinition.getId() + ", '" +
+                        outputAttribute.getRename() + "' is not one");
+            }
+            selectedNames.add(((Variable) outputAttribute.getExpression()).getAttributeName());
+        }
+        StreamDefinition selectedDefinition = StreamDefinition.id(streamDefinition.getId());
+        for (String selectedName : selectedNames) {
+            Attribute attribute = streamDefinition.getAttributeList().stream()
+                    .filter(streamAttribute -> streamAttribute.getName().equals(selectedName))
+                    .findFirst()
+                    .orElseThrow(() -> new DebugException("Attribute " + selectedName + " is not defined in " +
+                            "stream " + streamDefinition.getId()));
+            selectedDefinition.attribute(attribute.getName(), attribute.getType());
+        }
+        return selectedDefinition;
+    }
+
+    String getCondition() {
+        return condition;
+    }
+
+    /**
+     * Evaluate the condition on the data of an event.
+     *
+     * @param data attribute values of the event, in the order of the stream definition, followed by any further
+     *             values the query keeps with the event
+     * @return true if the event matches the condition
+     * @throws InterruptedException if the evaluation is interrupted
+     * @throws DebugException       if the data does not hold the attributes of the stream definition
+     */
+    synchronized boolean matches(Object[] data) throws InterruptedException {
+        if (data == null || data.length < attributeCount) {
+            throw new DebugException("Event " + Arrays.toString(data) + " does not hold the " + attributeCount +
+                    " attributes the condition is evaluated against");
+        }
+        matched = false;
+        inputHandler.send((data.length == attributeCount) ? data : Arrays.copyOf(data, attributeCount));
+        return matched;
+    }
+
+    void shutdown() {
+        siddhiAppRuntime.shutdown();
+    }
+}
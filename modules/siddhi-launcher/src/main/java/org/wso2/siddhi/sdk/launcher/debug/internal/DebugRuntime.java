@@ -21,17 +21,28 @@ package org.wso2.siddhi.sdk.launcher.debug.internal;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.core.SiddhiAppRuntime;
 import org.wso2.siddhi.core.debugger.SiddhiDebugger;
+import org.wso2.siddhi.core.event.ComplexEvent;
+import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.core.stream.input.InputHandler;
 import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.query.api.execution.query.Query;
+import org.wso2.siddhi.query.api.execution.query.input.stream.SingleInputStream;
 import org.wso2.siddhi.sdk.launcher.debug.BreakPointInfo;
 import org.wso2.siddhi.sdk.launcher.debug.VMDebugManager;
+import org.wso2.siddhi.sdk.launcher.debug.VMDebugSession;
+import org.wso2.siddhi.sdk.launcher.debug.dto.LogPointDTO;
+import org.wso2.siddhi.sdk.launcher.exception.DebugException;
 import org.wso2.siddhi.sdk.launcher.exception.InvalidExecutionStateException;
 import org.wso2.siddhi.sdk.launcher.exception.NoSuchStreamException;
+import org.wso2.siddhi.sdk.launcher.persistence.StatePersister;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The DebugRuntime which handles the siddhi debugger for each siddhi app.
@@ -39,16 +50,36 @@ import java.util.Map;
 public class DebugRuntime {
 
     private static final Logger log = Logger.getLogger(DebugRuntime.class);
+    private static final long NOT_HALTED = -1;
 
-    private Mode mode = Mode.STOP;
+    private volatile Mode mode = Mode.STOP;
     private transient String siddhiApp;
     private transient String siddhiAppFileName;
     private transient SiddhiAppRuntime siddhiAppRuntime;
     private transient SiddhiDebugger debugger;
+    private transient QueryRegistry queryRegistry;
+    private final VMDebugSession debugSession;
+    private final Set<String> breakPoints = ConcurrentHashMap.newKeySet();
+    private final Map<String, BreakPointCondition> breakPointConditions = new ConcurrentHashMap<>();
+    private final Map<String, LogPoint> logPoints = new ConcurrentHashMap<>();
+    private volatile boolean stepping = false;
+    private volatile RunTarget runTarget;
+    private final AtomicLong queryStateVersion = new AtomicLong();
+    private volatile QueryStateSnapshot haltedQueryState;
 
-    public DebugRuntime(String siddhiAppFileName, String siddhiApp) {
+    /**
+     * The thread of the hit the execution is halted at, whether it is resumed, and the generation of the halts, which
+     * is advanced by {@link #stop()} to release every waiting hit. Guarded by the halt lock.
+     */
+    private final Object haltLock = new Object();
+    private Thread haltedThread;
+    private boolean resumed;
+    private long haltGeneration = 0;
+
+    public DebugRuntime(String siddhiAppFileName, String siddhiApp, VMDebugSession debugSession) {
         this.siddhiApp = siddhiApp;
         this.siddhiAppFileName = siddhiAppFileName;
+        this.debugSession = debugSession;
         createRuntime();
     }
 
@@ -68,23 +99,66 @@ public class DebugRuntime {
         return debugger;
     }
 
+    /**
+     * Check whether the siddhi app is running in debug mode.
+     *
+     * @return true if the siddhi app is being debugged, otherwise false.
+     */
+    public boolean isDebugging() {
+        return Mode.DEBUG.equals(mode);
+    }
+
     public void debug() {
         if (Mode.STOP.equals(mode)) {
             debugger = siddhiAppRuntime.debug();
             debugger.setDebuggerCallback((event, queryName, queryTerminal, debugger) -> {
-                String[] queries = getQueries().toArray(new String[getQueries().size()]);
-                int queryIndex = Arrays.asList(queries).indexOf(queryName);
+                String breakPointKey = getBreakPointKey(queryName, queryTerminal);
+                LogPoint logPoint = logPoints.get(breakPointKey);
+                if (logPoint != null) {
+                    recordLogPoint(logPoint, event, queryName, queryTerminal);
+                }
+                // A step halts at the next event regardless of the condition of the breakpoint there
+                boolean stepped = stepping;
+                stepping = false;
+                RunTarget target = runTarget;
+                boolean targetReached = target != null && target.reached(event, queryName, queryTerminal);
+                if (!stepped && !targetReached && (!breakPoints.contains(breakPointKey) ||
+                        !matchesCondition(queryName, queryTerminal, event))) {
+                    pass(debugger);
+                    return;
+                }
+                long generation = awaitHaltTurn();
+                if (generation == NOT_HALTED) {
+                    pass(debugger);
+                    return;
+                }
+                // A breakpoint on the way to the target halts the execution as well, which ends the run
+                clearRunTarget();
+                int queryIndex = queryRegistry.getQueryIndex(queryName);
                 //Sending message to client on debug hit
-                log.info("@Debug: Query: " + queryName + ", Terminal: " + queryTerminal + ", Event: " +
-                        event);
-                Map<String, Object> queryState = this.debugger.getQueryState(queryName);
+                if (log.isDebugEnabled()) {
+                    log.debug("@Debug: Query: " + queryName + ", Terminal: " + queryTerminal + ", Event: " +
+                            event);
+                }
+                // Only a summary of the state is sent with the hit, the state is fetched by the client on demand
+                QueryStateSnapshot queryState = new QueryStateSnapshot(queryName,
+                        queryStateVersion.incrementAndGet(), this.debugger.getQueryState(queryName));
+                haltedQueryState = queryState;
                 BreakPointInfo breakPointInfo = new BreakPointInfo(siddhiAppFileName, queryIndex, queryTerminal
                         .toString());
-                breakPointInfo.setQueryState(queryState);
+                breakPointInfo.setQueryStateSummary(queryState.getSummary());
+                breakPointInfo.setQueryStateVersion(queryState.getVersion());
                 breakPointInfo.setQueryName(queryName);
+                breakPointInfo.setQueryLine(queryRegistry.getQueryLine(queryName));
                 breakPointInfo.setEventInfo(event);
-                VMDebugManager.getInstance().getDebugSession().notifyHalt(breakPointInfo);
+                breakPointInfo.setRunTargetReached(targetReached);
+                debugSession.notifyHalt(breakPointInfo);
+                awaitResume(generation);
+                pass(debugger);
             });
+            if (StatePersister.isEnabled()) {
+                StatePersister.restore(siddhiAppRuntime);
+            }
             mode = Mode.DEBUG;
         } else if (Mode.FAULTY.equals(mode)) {
             throw new InvalidExecutionStateException("Siddhi App is in faulty state.");
@@ -93,10 +167,365 @@ public class DebugRuntime {
         }
     }
 
+    /**
+     * Resume the execution until the next breakpoint.
+     */
+    public void play() {
+        clearRunTarget();
+        haltedQueryState = null;
+        resumeHalt();
+    }
+
+    /**
+     * Resume the execution until the next event reaches a query terminal.
+     */
+    public void next() {
+        clearRunTarget();
+        stepping = true;
+        haltedQueryState = null;
+        if (!resumeHalt()) {
+            // Nothing is halted, the next event is caught once it reaches a query terminal
+            debugger.next();
+        }
+    }
+
+    /**
+     * Resume the execution until a number of events reach query terminals.
+     *
+     * @param count number of events
+     */
+    public void stepEvents(long count) {
+        runTo(RunTarget.steps(count));
+    }
+
+    /**
+     * Resume the execution until a query emits a number of output events.
+     *
+     * @param queryName name of the query
+     * @param count     number of output events
+     */
+    public void runUntilOutputs(String queryName, long count) {
+        if (getQueryRegistry().getQueryIndex(queryName) == QueryRegistry.UNKNOWN_QUERY_INDEX) {
+            throw new DebugException("Query " + queryName + " does not exist in Siddhi app " + siddhiAppFileName);
+        }
+        runTo(RunTarget.outputs(queryName, count));
+    }
+
+    /**
+     * Resume the execution until an event with a timestamp at or after the given timestamp reaches a query terminal.
+     *
+     * @param timestamp the timestamp
+     */
+    public void runUntilTimestamp(long timestamp) {
+        runTo(RunTarget.timestamp(timestamp));
+    }
+
+    private void runTo(RunTarget target) {
+        clearRunTarget();
+        if (!target.isStepping()) {
+            // the out terminal of the query is watched only while running to the target
+            debugger.acquireBreakPoint(target.getQueryName(), SiddhiDebugger.QueryTerminal.OUT);
+        }
+        runTarget = target;
+        haltedQueryState = null;
+        if (!resumeHalt() && target.isStepping()) {
+            debugger.next();
+        }
+    }
+
+    /**
+     * Let the thread of a hit pass the debugger. The debugger blocks the thread of a hit on a permit once the callback
+     * returns, and a permit released by one thread can be taken by another, so every hit releases the one permit its
+     * own thread takes right away. The execution is halted by {@link #awaitResume(long)} instead, hence a log point
+     * or a skipped breakpoint on one thread never resumes a hit halted on another. A permit released by
+     * {@link #next()} while nothing is halted is never waited for, as no hit blocks on the permits.
+     */
+    private void pass(SiddhiDebugger debugger) {
+        RunTarget target = runTarget;
+        if (stepping || (target != null && target.isStepping())) {
+            debugger.next();
+        } else {
+            debugger.play();
+        }
+    }
+
+    /**
+     * Wait until no other hit is halted, so that one hit is halted at a time.
+     *
+     * @return the generation of the halt, or {@link #NOT_HALTED} if the debugging stopped meanwhile
+     */
+    private long awaitHaltTurn() {
+        synchronized (haltLock) {
+            long generation = haltGeneration;
+            try {
+                while (haltedThread != null && generation == haltGeneration) {
+                    haltLock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return NOT_HALTED;
+            }
+            if (generation != haltGeneration) {
+                return NOT_HALTED;
+            }
+            haltedThread = Thread.currentThread();
+            resumed = false;
+            return generation;
+        }
+    }
+
+    /**
+     * Wait until the halted hit of the current thread is resumed, or the debugging stops.
+     */
+    private void awaitResume(long generation) {
+        synchronized (haltLock) {
+            try {
+                while (!resumed && generation == haltGeneration) {
+                    haltLock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (generation == haltGeneration) {
+                    haltedThread = null;
+                }
+                haltLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Resume the halted hit.
+     *
+     * @return true if a hit was halted, false if the execution is not halted
+     */
+    private boolean resumeHalt() {
+        synchronized (haltLock) {
+            if (haltedThread == null || resumed) {
+                return false;
+            }
+            resumed = true;
+            haltLock.notifyAll();
+            return true;
+        }
+    }
+
+    private void clearRunTarget() {
+        RunTarget target = runTarget;
+        if (target == null) {
+            return;
+        }
+        runTarget = null;
+        if (!target.isStepping()) {
+            String breakPointKey = getBreakPointKey(target.getQueryName(), SiddhiDebugger.QueryTerminal.OUT);
+            if (!breakPoints.contains(breakPointKey) && !logPoints.containsKey(breakPointKey)) {
+                debugger.releaseBreakPoint(target.getQueryName(), SiddhiDebugger.QueryTerminal.OUT);
+            }
+        }
+    }
+
+    /**
+     * Acquire a breakpoint, which halts the execution at the events that match its condition. The condition is a
+     * Siddhi filter expression on the input stream of the query at the in terminal, or on its output stream at the
+     * out terminal. Every event halts the execution when the condition is empty.
+     *
+     * @param queryName     name of the query
+     * @param queryTerminal terminal of the query
+     * @param condition     the filter expression, or null
+     */
+    public void acquireBreakPoint(String queryName, SiddhiDebugger.QueryTerminal queryTerminal, String condition) {
+        // the condition is compiled first, so that an invalid condition does not halt every event
+        setBreakPointCondition(queryName, queryTerminal, condition);
+        breakPoints.add(getBreakPointKey(queryName, queryTerminal));
+        debugger.acquireBreakPoint(queryName, queryTerminal);
+    }
+
+    /**
+     * Release a breakpoint.
+     *
+     * @param queryName     name of the query
+     * @param queryTerminal terminal of the query
+     */
+    public void releaseBreakPoint(String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        String breakPointKey = getBreakPointKey(queryName, queryTerminal);
+        breakPoints.remove(breakPointKey);
+        removeBreakPointCondition(queryName, queryTerminal);
+        if (!logPoints.containsKey(breakPointKey) && !isRunTargetTerminal(queryName, queryTerminal)) {
+            debugger.releaseBreakPoint(queryName, queryTerminal);
+        }
+    }
+
+    /**
+     * Set a log point, which records the events at a query terminal without halting the execution. The log point
+     * replaces the existing log point of the terminal.
+     *
+     * @param queryName     name of the query
+     * @param queryTerminal terminal of the query
+     * @param logPointDTO   options of the log point
+     */
+    public void setLogPoint(String queryName, SiddhiDebugger.QueryTerminal queryTerminal, LogPointDTO logPointDTO) {
+        logPoints.put(getBreakPointKey(queryName, queryTerminal), new LogPoint(logPointDTO));
+        debugger.acquireBreakPoint(queryName, queryTerminal);
+    }
+
+    /**
+     * Remove a log point.
+     *
+     * @param queryName     name of the query
+     * @param queryTerminal terminal of the query
+     */
+    public void removeLogPoint(String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        String breakPointKey = getBreakPointKey(queryName, queryTerminal);
+        if (logPoints.remove(breakPointKey) != null && !breakPoints.contains(breakPointKey) &&
+                !isRunTargetTerminal(queryName, queryTerminal)) {
+            debugger.releaseBreakPoint(queryName, queryTerminal);
+        }
+    }
+
+    /**
+     * Get the state of a query while the execution is halted at a breakpoint.
+     *
+     * @param queryName name of the query, or null for the query the execution is halted at
+     * @param version   version of the state given in the breakpoint hit, or null to accept the current version
+     * @return the state of the query
+     */
+    public QueryStateSnapshot getQueryState(String queryName, Long version) {
+        QueryStateSnapshot queryState = haltedQueryState;
+        if (queryState == null) {
+            throw new DebugException("Query state is only available while the execution is halted at a breakpoint");
+        }
+        if (version != null && version != queryState.getVersion()) {
+            throw new DebugException("Query state version " + version + " is no longer available, the current " +
+                    "version is " + queryState.getVersion());
+        }
+        if (queryName == null || queryName.equals(queryState.getQueryName())) {
+            return queryState;
+        }
+        if (getQueryRegistry().getQueryIndex(queryName) == QueryRegistry.UNKNOWN_QUERY_INDEX) {
+            throw new DebugException("Query " + queryName + " does not exist in Siddhi app " + siddhiAppFileName);
+        }
+        return new QueryStateSnapshot(queryName, queryState.getVersion(), debugger.getQueryState(queryName));
+    }
+
+    private boolean isRunTargetTerminal(String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        RunTarget target = runTarget;
+        return target != null && !target.isStepping() && target.getQueryName().equals(queryName) &&
+                SiddhiDebugger.QueryTerminal.OUT.equals(queryTerminal);
+    }
+
+    private void recordLogPoint(LogPoint logPoint, ComplexEvent event, String queryName,
+                                SiddhiDebugger.QueryTerminal queryTerminal) {
+        long hit = logPoint.hit();
+        if (hit == LogPoint.NOT_RECORDED) {
+            return;
+        }
+        // The event is copied, as it is reused by the query once the execution continues
+        Object[] data = event.getOutputData();
+        BreakPointInfo breakPointInfo = new BreakPointInfo(siddhiAppFileName, queryRegistry.getQueryIndex(queryName),
+                queryTerminal.toString());
+        breakPointInfo.setQueryName(queryName);
+        breakPointInfo.setQueryLine(queryRegistry.getQueryLine(queryName));
+        breakPointInfo.setHitCount(hit);
+        breakPointInfo.setEventInfo(new Event(event.getTimestamp(), (data == null) ? new Object[0] : data.clone()));
+        debugSession.notifyLog(breakPointInfo);
+    }
+
+    private void setBreakPointCondition(String queryName, SiddhiDebugger.QueryTerminal queryTerminal,
+                                        String condition) {
+        if (condition == null || condition.trim().isEmpty()) {
+            removeBreakPointCondition(queryName, queryTerminal);
+            return;
+        }
+        String key = getBreakPointKey(queryName, queryTerminal);
+        BreakPointCondition current = breakPointConditions.get(key);
+        if (current != null && current.getCondition().equals(condition)) {
+            return;
+        }
+        BreakPointCondition breakPointCondition = new BreakPointCondition(condition,
+                getTerminalStreamDefinition(queryName, queryTerminal),
+                VMDebugManager.getInstance().getSiddhiManager());
+        BreakPointCondition previous = breakPointConditions.put(key, breakPointCondition);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    private void removeBreakPointCondition(String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        BreakPointCondition breakPointCondition = breakPointConditions.remove(getBreakPointKey(queryName,
+                queryTerminal));
+        if (breakPointCondition != null) {
+            breakPointCondition.shutdown();
+        }
+    }
+
+    private boolean matchesCondition(String queryName, SiddhiDebugger.QueryTerminal queryTerminal,
+                                     ComplexEvent event) {
+        BreakPointCondition breakPointCondition = breakPointConditions.get(getBreakPointKey(queryName,
+                queryTerminal));
+        if (breakPointCondition == null) {
+            return true;
+        }
+        try {
+            return breakPointCondition.matches(event.getOutputData());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Error in evaluating breakpoint condition '" + breakPointCondition.getCondition() +
+                    "' of query " + queryName + ": " + e);
+            return true;
+        }
+    }
+
+    private StreamDefinition getTerminalStreamDefinition(String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        Query query = getQueryRegistry().getQuery(queryName);
+        if (query == null) {
+            throw new DebugException("Breakpoint conditions are only supported on queries named with " +
+                    "@info(name='...'), query: " + queryName);
+        }
+        boolean isInTerminal = SiddhiDebugger.QueryTerminal.IN.equals(queryTerminal);
+        String streamId;
+        if (isInTerminal) {
+            if (!(query.getInputStream() instanceof SingleInputStream)) {
+                throw new DebugException("Breakpoint conditions at the in terminal are only supported on single " +
+                        "stream queries, query: " + queryName);
+            }
+            streamId = ((SingleInputStream) query.getInputStream()).getStreamId();
+        } else {
+            streamId = query.getOutputStream().getId();
+        }
+        StreamDefinition streamDefinition = siddhiAppRuntime.getStreamDefinitionMap().get(streamId);
+        if (streamDefinition == null) {
+            throw new DebugException("Breakpoint conditions are not supported on stream " + streamId +
+                    " of query " + queryName);
+        }
+        return isInTerminal ? BreakPointCondition.getInTerminalDefinition(query, streamDefinition) : streamDefinition;
+    }
+
+    private static String getBreakPointKey(String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        return queryName + ":" + queryTerminal;
+    }
+
     public void stop() {
+        // The runtime is no longer persisted once it is being shut down
+        mode = Mode.STOP;
+        for (BreakPointCondition breakPointCondition : breakPointConditions.values()) {
+            breakPointCondition.shutdown();
+        }
+        breakPointConditions.clear();
+        breakPoints.clear();
+        logPoints.clear();
+        stepping = false;
+        runTarget = null;
+        haltedQueryState = null;
+        synchronized (haltLock) {
+            // Releases the halted hit and the hits waiting for their turn
+            haltGeneration++;
+            haltedThread = null;
+            haltLock.notifyAll();
+        }
         if (debugger != null) {
             debugger.releaseAllBreakPoints();
-            debugger.play();
             debugger = null;
         }
         if (siddhiAppRuntime != null) {
@@ -115,8 +544,12 @@ public class DebugRuntime {
     }
 
     public List<String> getQueries() {
+        return getQueryRegistry().getQueryNames();
+    }
+
+    public QueryRegistry getQueryRegistry() {
         if (!Mode.FAULTY.equals(mode)) {
-            return new ArrayList<>(siddhiAppRuntime.getQueryNames());
+            return queryRegistry;
         } else {
             throw new InvalidExecutionStateException("Siddhi App is in faulty state.");
         }
@@ -148,6 +581,7 @@ public class DebugRuntime {
             siddhiAppRuntime = VMDebugManager.getInstance().getSiddhiManager()
                     .createSiddhiAppRuntime(siddhiApp);
             this.setSiddhiAppRuntime(siddhiAppRuntime);
+            queryRegistry = new QueryRegistry(siddhiAppRuntime.getQueryNames(), siddhiApp);
             mode = Mode.STOP;
         } else {
             mode = Mode.FAULTY;
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.sdk.launcher.debug.VMDebugManager;
 import org.wso2.siddhi.sdk.launcher.debug.VMDebugSession;
 import org.wso2.siddhi.sdk.launcher.exception.NoSuchStreamException;
 import org.wso2.siddhi.sdk.launcher.exception.ResourceNotFoundException;
@@ -35,19 +36,14 @@ public class DebuggerEventStreamService implements EventStreamService {
 
     private static Logger log = LoggerFactory.getLogger(DebuggerEventStreamService.class);
 
-    private VMDebugSession debugSession;
-
-    public VMDebugSession getDebugSession() {
-        return debugSession;
-    }
-
-    public void setDebugSession(VMDebugSession debugSession) {
-        this.debugSession = debugSession;
+    private static DebugRuntime getDebugRuntime(String siddhiAppName) {
+        VMDebugSession debugSession = VMDebugManager.getInstance().getDebugSession(siddhiAppName);
+        return (debugSession == null) ? null : debugSession.getDebugRuntime();
     }
 
     @Override
     public List<String> getStreamNames(String siddhiAppName) {
-        DebugRuntime runtimeHolder = debugSession.getDebugRuntime();
+        DebugRuntime runtimeHolder = getDebugRuntime(siddhiAppName);
         if (runtimeHolder != null) {
             return runtimeHolder.getStreams();
         } else {
@@ -59,7 +55,7 @@ public class DebuggerEventStreamService implements EventStreamService {
     @Override
     public List<Attribute> getStreamAttributes(String siddhiAppName, String streamName) throws
             ResourceNotFoundException {
-        DebugRuntime runtimeHolder = debugSession.getDebugRuntime();
+        DebugRuntime runtimeHolder = getDebugRuntime(siddhiAppName);
         if (runtimeHolder != null) {
             try {
                 return runtimeHolder.getStreamAttributes(streamName);
@@ -75,7 +71,7 @@ public class DebuggerEventStreamService implements EventStreamService {
 
     @Override
     public void pushEvent(String siddhiAppName, String streamName, Event event) {
-        DebugRuntime runtimeHolder = debugSession.getDebugRuntime();
+        DebugRuntime runtimeHolder = getDebugRuntime(siddhiAppName);
         if (runtimeHolder != null) {
             try {
                 runtimeHolder.getInputHandler(streamName).send(event);
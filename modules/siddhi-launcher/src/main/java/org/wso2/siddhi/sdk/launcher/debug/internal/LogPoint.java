@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.debug.internal;
+
+import org.wso2.siddhi.sdk.launcher.debug.dto.LogPointDTO;
+import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which hits of a log point are recorded, based on its hit count, sampling rate and rate limit.
+ */
+class LogPoint {
+
+    static final long NOT_RECORDED = -1;
+
+    private final long hitCount;
+    private final long sampleRate;
+    private final int maxRecordsPerSecond;
+    private final AtomicLong hits = new AtomicLong();
+    private long currentSecond;
+    private int currentSecondRecords;
+
+    LogPoint(LogPointDTO logPointDTO) {
+        if (logPointDTO.getHitCount() < 1 || logPointDTO.getSampleRate() < 1 ||
+                logPointDTO.getMaxRecordsPerSecond() < 0) {
+            throw new DebugException("Invalid log point options, hit count and sample rate should be positive " +
+                    "and max records per second should not be negative");
+        }
+        this.hitCount = logPointDTO.getHitCount();
+        this.sampleRate = logPointDTO.getSampleRate();
+        this.maxRecordsPerSecond = logPointDTO.getMaxRecordsPerSecond();
+    }
+
+    /**
+     * Count a hit of the log point.
+     *
+     * @return the number of the hit if it should be recorded, otherwise {@link #NOT_RECORDED}
+     */
+    long hit() {
+        long hit = hits.incrementAndGet();
+        if (hit < hitCount || (hit - hitCount) % sampleRate != 0) {
+            return NOT_RECORDED;
+        }
+        if (maxRecordsPerSecond > 0) {
+            long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+            synchronized (this) {
+                if (second != currentSecond) {
+                    currentSecond = second;
+                    currentSecondRecords = 0;
+                }
+                if (currentSecondRecords >= maxRecordsPerSecond) {
+                    return NOT_RECORDED;
+                }
+                currentSecondRecords++;
+            }
+        }
+        return hit;
+    }
+}
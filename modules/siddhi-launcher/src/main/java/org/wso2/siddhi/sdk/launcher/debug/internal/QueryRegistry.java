@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.debug.internal;
+
+import org.wso2.siddhi.query.api.annotation.Annotation;
+import org.wso2.siddhi.query.api.execution.query.Query;
+import org.wso2.siddhi.query.api.util.AnnotationHelper;
+import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of the queries of a siddhi app runtime, which maps between the query names, the query indexes used
+ * by the debug clients and the lines of the siddhi app the queries start at. It is built once per runtime so that
+ * the debug paths do not scan the query names of the runtime.
+ */
+public final class QueryRegistry {
+
+    public static final int UNKNOWN_QUERY_INDEX = -1;
+    public static final int UNKNOWN_QUERY_LINE = -1;
+
+    private static final String ANNOTATION_INFO = "info";
+    private static final String ANNOTATION_ELEMENT_NAME = "name";
+
+    private final String[] queryNames;
+    private final List<String> queryNameList;
+    private final Map<String, Integer> queryIndexMap;
+    private final Map<String, Integer> queryLineMap;
+    private final Map<String, Query> queryMap;
+
+    /**
+     * Build the table of a siddhi app runtime.
+     *
+     * @param queryNames names of the queries of the runtime, in the order the query indexes refer to
+     * @param siddhiApp  the siddhi app the runtime is created from
+     */
+    public QueryRegistry(Collection<String> queryNames, String siddhiApp) {
+        this.queryNames = queryNames.toArray(new String[0]);
+        this.queryNameList = Collections.unmodifiableList(Arrays.asList(this.queryNames));
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < this.queryNames.length; i++) {
+            indexes.put(this.queryNames[i], i);
+        }
+        this.queryIndexMap = Collections.unmodifiableMap(indexes);
+        // Only the queries named with @info(name='...') can be matched with the queries of the parsed app
+        Map<String, Integer> lines = new HashMap<>();
+        Map<String, Query> queries = new HashMap<>();
+        for (Query query : SiddhiAppUtils.getQueries(siddhiApp)) {
+            Annotation annotation = AnnotationHelper.getAnnotation(ANNOTATION_INFO, query.getAnnotations());
+            String queryName = (annotation == null) ? null : annotation.getElement(ANNOTATION_ELEMENT_NAME);
+            if (queryName == null || !indexes.containsKey(queryName)) {
+                continue;
+            }
+            queries.put(queryName, query);
+            int[] startIndex = query.getQueryContextStartIndex();
+            if (startIndex != null) {
+                lines.put(queryName, startIndex[0]);
+            }
+        }
+        this.queryLineMap = Collections.unmodifiableMap(lines);
+        this.queryMap = Collections.unmodifiableMap(queries);
+    }
+
+    /**
+     * Get the names of the queries, in the order of their indexes.
+     *
+     * @return unmodifiable list of the query names
+     */
+    public List<String> getQueryNames() {
+        return queryNameList;
+    }
+
+    /**
+     * Get the name of the query at an index.
+     *
+     * @param queryIndex the query index
+     * @return the query name
+     */
+    public String getQueryName(int queryIndex) {
+        if (queryIndex < 0 || queryIndex >= queryNames.length) {
+            throw new DebugException("Invalid query index " + queryIndex + ", the Siddhi app has " +
+                    queryNames.length + " queries");
+        }
+        return queryNames[queryIndex];
+    }
+
+    /**
+     * Get the index of a query.
+     *
+     * @param queryName the query name
+     * @return the query index, or {@link #UNKNOWN_QUERY_INDEX} if there is no such query
+     */
+    public int getQueryIndex(String queryName) {
+        Integer queryIndex = queryIndexMap.get(queryName);
+        return (queryIndex == null) ? UNKNOWN_QUERY_INDEX : queryIndex;
+    }
+
+    /**
+     * Get the line of the siddhi app a query starts at.
+     *
+     * @param queryName the query name
+     * @return the line number, or {@link #UNKNOWN_QUERY_LINE} if the line of the query is not known
+     */
+    public int getQueryLine(String queryName) {
+        Integer queryLine = queryLineMap.get(queryName);
+        return (queryLine == null) ? UNKNOWN_QUERY_LINE : queryLine;
+    }
+
+    /**
+     * Get the parsed definition of a query.
+     *
+     * @param queryName the query name
+     * @return the query, or null if the query is not named in the siddhi app
+     */
+    public Query getQuery(String queryName) {
+        return queryMap.get(queryName);
+    }
+}
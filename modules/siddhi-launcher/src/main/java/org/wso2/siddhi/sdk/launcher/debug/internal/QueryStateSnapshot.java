@@ -0,0 +1,217 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.debug.internal;
+
+import org.wso2.siddhi.core.event.ComplexEvent;
+import org.wso2.siddhi.core.event.ComplexEventChunk;
+import org.wso2.siddhi.core.event.Event;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a query captured at a breakpoint hit. The state is kept by reference and only walked on demand, so that
+ * a hit costs a summary of the state elements rather than serializing the whole state. It is only valid while the
+ * execution is halted at the hit it is captured at, as the query keeps changing the state once it continues.
+ * <p>
+ * Each state element is seen as a flat list of entries: the fields of a map are entries, and the items of
+ * collections, arrays and event chunks in a field are entries of their own, keyed as {@code field[index]}. A
+ * state element which is not a map is a single field named {@code value}.
+ */
+public final class QueryStateSnapshot {
+
+    // field name of the entries of state elements which are not maps
+    private static final String VALUE_FIELD = "value";
+
+    private final String queryName;
+    private final long version;
+    private final Map<String, Object> queryState;
+
+    QueryStateSnapshot(String queryName, long version, Map<String, Object> queryState) {
+        this.queryName = queryName;
+        this.version = version;
+        this.queryState = (queryState == null) ? Collections.emptyMap() : queryState;
+    }
+
+    public String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * Get the version of the state, which changes at every breakpoint hit.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of entries of each state element, without converting the entries.
+     *
+     * @return the number of entries by the state element name
+     */
+    public Map<String, Integer> getSummary() {
+        Map<String, Integer> summary = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> element : queryState.entrySet()) {
+            EntryCounter counter = new EntryCounter();
+            walkElement(element.getValue(), counter);
+            summary.put(element.getKey(), counter.count);
+        }
+        return summary;
+    }
+
+    /**
+     * Get a page of the entries of the state elements.
+     *
+     * @param elements names of the state elements, or null for all the elements
+     * @param offset   number of entries of each element to skip
+     * @param limit    maximum number of entries of each element
+     * @return the entries of each element by the entry key, by the state element name
+     */
+    public Map<String, Map<String, Object>> getPage(List<String> elements, int offset, int limit) {
+        Map<String, Map<String, Object>> page = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> element : queryState.entrySet()) {
+            if (elements != null && !elements.contains(element.getKey())) {
+                continue;
+            }
+            PageCollector collector = new PageCollector(offset, limit);
+            walkElement(element.getValue(), collector);
+            page.put(element.getKey(), collector.entries);
+        }
+        return page;
+    }
+
+    private static void walkElement(Object state, EntryVisitor visitor) {
+        if (state instanceof Map) {
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) state).entrySet()) {
+                if (!walkField(String.valueOf(field.getKey()), field.getValue(), visitor)) {
+                    return;
+                }
+            }
+        } else {
+            walkField(VALUE_FIELD, state, visitor);
+        }
+    }
+
+    private static boolean walkField(String key, Object value, EntryVisitor visitor) {
+        if (value instanceof ComplexEventChunk) {
+            value = ((ComplexEventChunk<?>) value).getFirst();
+        }
+        int index = 0;
+        if (value instanceof ComplexEvent) {
+            // chunks are walked through the event links, as iterating a chunk moves the iterator the query uses
+            for (ComplexEvent event = (ComplexEvent) value; event != null; event = event.getNext()) {
+                if (!visitor.visit(key, index++, event)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                if (!visitor.visit(key, index++, item)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Map) {
+            for (Object item : ((Map<?, ?>) value).entrySet()) {
+                if (!visitor.visit(key, index++, item)) {
+                    return false;
+                }
+            }
+        } else if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            for (; index < length; index++) {
+                if (!visitor.visit(key, index, Array.get(value, index))) {
+                    return false;
+                }
+            }
+        } else {
+            return visitor.visit(key, -1, value);
+        }
+        return true;
+    }
+
+    private static Object toEntryValue(Object value) {
+        if (value instanceof ComplexEvent) {
+            // the event data is copied, as the event is reused by the query once the execution continues
+            ComplexEvent event = (ComplexEvent) value;
+            Object[] data = event.getOutputData();
+            return new Event(event.getTimestamp(), (data == null) ? new Object[0] : data.clone());
+        }
+        if (value instanceof Map.Entry) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+            return Collections.singletonMap(String.valueOf(entry.getKey()), toEntryValue(entry.getValue()));
+        }
+        return value;
+    }
+
+    /**
+     * Visits the entries of a state element.
+     */
+    private interface EntryVisitor {
+
+        /**
+         * Visit an entry.
+         *
+         * @param field name of the field of the entry
+         * @param index index of the entry in the field, or -1 if the field is a single entry
+         * @param value value of the entry
+         * @return true to continue walking the element, otherwise false
+         */
+        boolean visit(String field, int index, Object value);
+    }
+
+    private static class EntryCounter implements EntryVisitor {
+
+        private int count = 0;
+
+        @Override
+        public boolean visit(String field, int index, Object value) {
+            count++;
+            return true;
+        }
+    }
+
+    private static class PageCollector implements EntryVisitor {
+
+        private final Map<String, Object> entries = new LinkedHashMap<>();
+        private int skip;
+        private final int limit;
+
+        PageCollector(int offset, int limit) {
+            this.skip = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean visit(String field, int index, Object value) {
+            if (skip > 0) {
+                skip--;
+                return true;
+            }
+            if (entries.size() >= limit) {
+                return false;
+            }
+            entries.put((index < 0) ? field : field + "[" + index + "]", toEntryValue(value));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.debug.internal;
+
+import org.wso2.siddhi.core.debugger.SiddhiDebugger;
+import org.wso2.siddhi.core.event.ComplexEvent;
+import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A point the execution runs to without halting in between, unless a breakpoint is hit on the way. Targets are
+ * checked by the debugger callback, so that the client is not involved until the target is reached.
+ */
+class RunTarget {
+
+    private final Type type;
+    private final String queryName;
+    private final long timestamp;
+    private final AtomicLong remaining;
+
+    private RunTarget(Type type, String queryName, long count, long timestamp) {
+        this.type = type;
+        this.queryName = queryName;
+        this.timestamp = timestamp;
+        this.remaining = new AtomicLong(count);
+    }
+
+    /**
+     * Create a target which is reached after a number of events reach query terminals.
+     *
+     * @param count number of events
+     * @return the target
+     */
+    static RunTarget steps(long count) {
+        if (count < 1) {
+            throw new DebugException("Invalid step count " + count + ", it should be positive");
+        }
+        return new RunTarget(Type.STEPS, null, count, 0);
+    }
+
+    /**
+     * Create a target which is reached after a query emits a number of output events.
+     *
+     * @param queryName name of the query
+     * @param count     number of output events
+     * @return the target
+     */
+    static RunTarget outputs(String queryName, long count) {
+        if (count < 1) {
+            throw new DebugException("Invalid output count " + count + ", it should be positive");
+        }
+        return new RunTarget(Type.OUTPUTS, queryName, count, 0);
+    }
+
+    /**
+     * Create a target which is reached at the first event with a timestamp at or after the given timestamp.
+     *
+     * @param timestamp the timestamp
+     * @return the target
+     */
+    static RunTarget timestamp(long timestamp) {
+        return new RunTarget(Type.TIMESTAMP, null, 0, timestamp);
+    }
+
+    String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * Check whether the debugger has to stop at every query terminal for the target, rather than only at the out
+     * terminal of its query.
+     *
+     * @return true if every query terminal is checked, otherwise false
+     */
+    boolean isStepping() {
+        return type != Type.OUTPUTS;
+    }
+
+    /**
+     * Count an event reaching a query terminal.
+     *
+     * @param event         the event
+     * @param queryName     name of the query
+     * @param queryTerminal terminal of the query
+     * @return true if the target is reached, otherwise false
+     */
+    boolean reached(ComplexEvent event, String queryName, SiddhiDebugger.QueryTerminal queryTerminal) {
+        switch (type) {
+            case STEPS:
+                return remaining.decrementAndGet() <= 0;
+            case OUTPUTS:
+                if (!this.queryName.equals(queryName) || !SiddhiDebugger.QueryTerminal.OUT.equals(queryTerminal)) {
+                    return false;
+                }
+                // the out terminal is reached once per output chunk
+                long outputs = 0;
+                for (ComplexEvent output = event; output != null; output = output.getNext()) {
+                    outputs++;
+                }
+                return remaining.addAndGet(-outputs) <= 0;
+            default:
+                return event != null && event.getTimestamp() >= timestamp;
+        }
+    }
+
+    private enum Type { STEPS, OUTPUTS, TIMESTAMP }
+}
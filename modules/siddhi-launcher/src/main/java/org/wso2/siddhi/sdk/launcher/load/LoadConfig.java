@@ -0,0 +1,93 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.load;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of a synthetic load generated for a siddhi app.
+ */
+public class LoadConfig {
+
+    private List<String> streamNames = new ArrayList<>();
+    private List<String> templates = new ArrayList<>();
+    private double rate = 0;
+    private long durationSeconds = 60;
+    private long count = 0;
+
+    /**
+     * Get the streams to generate events for. An empty list selects all the input streams of the app.
+     *
+     * @return the stream names
+     */
+    public List<String> getStreamNames() {
+        return streamNames;
+    }
+
+    public void setStreamNames(List<String> streamNames) {
+        this.streamNames = streamNames;
+    }
+
+    /**
+     * Get the event templates, in {@code <stream name>=<json array>} format. Null values of a template are
+     * generated randomly.
+     *
+     * @return the templates
+     */
+    public List<String> getTemplates() {
+        return templates;
+    }
+
+    public void setTemplates(List<String> templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Get the target rate per stream.
+     *
+     * @return events per second, or 0 to send events as fast as possible
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Get the number of events to generate per stream.
+     *
+     * @return the event count, or 0 for no limit
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.load;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.exception.EventParseException;
+import org.wso2.siddhi.sdk.launcher.exception.NoSuchStreamException;
+import org.wso2.siddhi.sdk.launcher.util.Constants;
+import org.wso2.siddhi.sdk.launcher.util.EventGenerator;
+import org.wso2.siddhi.sdk.launcher.util.EventLineParser;
+import org.wso2.siddhi.sdk.launcher.util.FeederStatistics;
+import org.wso2.siddhi.sdk.launcher.util.ReplayPacer;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles the load mode for a siddhi app, where typed events are generated for the input streams of the app at a
+ * target rate and the achieved throughput is reported.
+ */
+public class SiddhiLoad {
+
+    private static final Logger log = Logger.getLogger(SiddhiLoad.class);
+
+    /**
+     * Interval between the throughput reports logged while the load is running.
+     */
+    private static final long REPORT_INTERVAL_MILLIS = 5000;
+
+    private final SiddhiManager siddhiManager = new SiddhiManager();
+    private final FeederStatistics statistics = new FeederStatistics();
+    private volatile boolean running = false;
+
+    public SiddhiLoad() {
+
+    }
+
+    /**
+     * Generate load for a siddhi app and wait until the load is complete.
+     *
+     * @param siddhiApp  the siddhi app
+     * @param loadConfig configuration of the load
+     */
+    public void generateLoad(String siddhiApp, LoadConfig loadConfig) {
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+        try {
+            List<String> streamNames = getStreamNames(siddhiApp, siddhiAppRuntime, loadConfig);
+            Map<String, List<Object[]>> templates = parseTemplates(siddhiAppRuntime, loadConfig);
+            int batchSize = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_FEEDER_BATCH_SIZE,
+                    Constants.DEFAULT_FEEDER_BATCH_SIZE, 1);
+            siddhiAppRuntime.start();
+
+            List<Thread> threads = new ArrayList<>();
+            running = true;
+            statistics.start();
+            for (String streamName : streamNames) {
+                EventGenerator generator = new EventGenerator(siddhiAppRuntime.getStreamDefinitionMap().get(streamName),
+                        templates.getOrDefault(streamName, new ArrayList<>()));
+                Thread thread = new Thread(new StreamLoad(siddhiAppRuntime.getInputHandler(streamName), streamName,
+                        generator, loadConfig, batchSize));
+                thread.setName("Siddhi Load Generator-" + streamName);
+                thread.start();
+                threads.add(thread);
+            }
+            log.info("Generating load for streams " + streamNames + " at " +
+                    ((loadConfig.getRate() > 0) ? loadConfig.getRate() + " events/sec per stream" : "maximum rate"));
+            awaitLoad(threads, loadConfig);
+            statistics.end();
+            log.info("Load completed. " + statistics.getSummary());
+        } finally {
+            siddhiAppRuntime.shutdown();
+            siddhiManager.shutdown();
+        }
+    }
+
+    private void awaitLoad(List<Thread> threads, LoadConfig loadConfig) {
+        long endTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(loadConfig.getDurationSeconds());
+        long lastCount = 0;
+        long lastReportTime = System.currentTimeMillis();
+        try {
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    long now = System.currentTimeMillis();
+                    if (now >= endTime) {
+                        running = false;
+                    }
+                    thread.join(Math.max(1, Math.min(endTime - now, REPORT_INTERVAL_MILLIS)));
+                    now = System.currentTimeMillis();
+                    if (now - lastReportTime >= REPORT_INTERVAL_MILLIS) {
+                        long count = statistics.getTotalEventCount();
+                        log.info("Throughput: " + ((count - lastCount) * 1000 / (now - lastReportTime)) +
+                                " events/sec, total events: " + count);
+                        lastCount = count;
+                        lastReportTime = now;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+    private static List<String> getStreamNames(String siddhiApp, SiddhiAppRuntime siddhiAppRuntime,
+                                               LoadConfig loadConfig) {
+        Map<String, StreamDefinition> streamDefinitionMap = siddhiAppRuntime.getStreamDefinitionMap();
+        List<String> streamNames = new ArrayList<>();
+        if (loadConfig.getStreamNames().isEmpty()) {
+            // Streams which are not populated by a query are the input streams of the app
+            streamNames.addAll(streamDefinitionMap.keySet());
+            streamNames.removeAll(SiddhiAppUtils.getQueryOutputStreamIds(siddhiApp));
+        } else {
+            for (String streamName : loadConfig.getStreamNames()) {
+                if (!streamDefinitionMap.containsKey(streamName)) {
+                    throw new NoSuchStreamException("Stream '" + streamName + "' is not defined in the Siddhi app");
+                }
+                streamNames.add(streamName);
+            }
+        }
+        return streamNames;
+    }
+
+    private static Map<String, List<Object[]>> parseTemplates(SiddhiAppRuntime siddhiAppRuntime,
+                                                              LoadConfig loadConfig) {
+        EventLineParser parser = new EventLineParser(siddhiAppRuntime.getStreamDefinitionMap());
+        Map<String, List<Object[]>> templates = new HashMap<>();
+        for (String template : loadConfig.getTemplates()) {
+            try {
+                Object[] data = parser.parse(template.trim());
+                templates.computeIfAbsent(parser.getStreamName(), key -> new ArrayList<>()).add(data);
+            } catch (EventParseException e) {
+                throw new EventParseException("Invalid event template: " + e.getMessage(), e);
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * Generates the events of a stream.
+     */
+    private class StreamLoad implements Runnable {
+
+        private final InputHandler inputHandler;
+        private final String streamName;
+        private final EventGenerator generator;
+        private final LoadConfig loadConfig;
+        private final Event[] batch;
+
+        private StreamLoad(InputHandler inputHandler, String streamName, EventGenerator generator,
+                           LoadConfig loadConfig, int batchSize) {
+            this.inputHandler = inputHandler;
+            this.streamName = streamName;
+            this.generator = generator;
+            this.loadConfig = loadConfig;
+            this.batch = new Event[batchSize];
+        }
+
+        @Override
+        public void run() {
+            long count = loadConfig.getCount();
+            double rate = loadConfig.getRate();
+            long startNanos = System.nanoTime();
+            long sent = 0;
+            try {
+                while (running && (count == 0 || sent < count)) {
+                    int batchCount = (int) ((count == 0) ? batch.length : Math.min(batch.length, count - sent));
+                    if (rate > 0) {
+                        // Batches are scheduled from the start time, hence slow batches do not lower the rate
+                        ReplayPacer.awaitDeadline(startNanos + (long) (sent * TimeUnit.SECONDS.toNanos(1) / rate));
+                        batchCount = (int) Math.max(1, Math.min(batchCount, Math.ceil(rate / 1000)));
+                    }
+                    long timestamp = System.currentTimeMillis();
+                    for (int i = 0; i < batchCount; i++) {
+                        batch[i] = new Event(timestamp, generator.next());
+                    }
+                    inputHandler.send((batchCount == batch.length) ? batch : Arrays.copyOf(batch, batchCount));
+                    statistics.record(streamName, batchCount);
+                    sent += batchCount;
+                }
+            } catch (InterruptedException e) {
+                log.error("Error in generating events for stream " + streamName + ":" + e);
+            }
+        }
+    }
+}
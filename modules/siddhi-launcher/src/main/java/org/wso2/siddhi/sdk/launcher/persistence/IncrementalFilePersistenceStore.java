@@ -0,0 +1,209 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.persistence;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.util.persistence.IncrementalPersistenceStore;
+import org.wso2.siddhi.core.util.persistence.util.IncrementalSnapshotInfo;
+import org.wso2.siddhi.core.util.persistence.util.PersistenceHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental persistence store which keeps each snapshot of a siddhi app element in a GZIP compressed file, named by
+ * its revision, in the directory of the siddhi app. A snapshot is written to a temporary file which is forced to the
+ * disk and then moved in place, so that a crash while persisting never leaves a partial snapshot behind.
+ * <p>
+ * Once the full snapshot of an element is saved, the earlier snapshots of the element are no longer needed for a
+ * restore and are deleted, hence the size of the store follows the size of the state rather than its history.
+ */
+public class IncrementalFilePersistenceStore implements IncrementalPersistenceStore {
+
+    private static final Logger log = Logger.getLogger(IncrementalFilePersistenceStore.class);
+
+    private static final String SNAPSHOT_FILE_SUFFIX = ".gz";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final Path folder;
+
+    public IncrementalFilePersistenceStore(String folder) {
+        this.folder = Paths.get(folder);
+    }
+
+    @Override
+    public void save(IncrementalSnapshotInfo snapshotInfo, byte[] snapshot) {
+        Path siddhiAppFolder = folder.resolve(snapshotInfo.getSiddhiAppId());
+        Path file = siddhiAppFolder.resolve(snapshotInfo.getRevision() + SNAPSHOT_FILE_SUFFIX);
+        Path tempFile = siddhiAppFolder.resolve(snapshotInfo.getRevision() + TEMP_FILE_SUFFIX);
+        try {
+            Files.createDirectories(siddhiAppFolder);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 GZIPOutputStream outputStream = new GZIPOutputStream(Channels.newOutputStream(channel))) {
+                outputStream.write(snapshot);
+                outputStream.finish();
+                // The content reaches the disk before the file is renamed in place
+                channel.force(true);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The rename reaches the disk before the earlier snapshots of the element are deleted
+            syncDirectory(siddhiAppFolder);
+        } catch (IOException e) {
+            log.error("Failed to save snapshot " + snapshotInfo.getRevision() + " of siddhi app " +
+                    snapshotInfo.getSiddhiAppId() + ": " + e);
+            return;
+        }
+        if (snapshotInfo.getType() != IncrementalSnapshotInfo.SnapshotType.INCREMENT) {
+            deleteEarlierSnapshots(snapshotInfo);
+        }
+    }
+
+    @Override
+    public void setProperties(Map properties) {
+        // The store is configured by the launcher
+    }
+
+    @Override
+    public byte[] load(IncrementalSnapshotInfo snapshotInfo) {
+        Path file = folder.resolve(snapshotInfo.getSiddhiAppId()).resolve(snapshotInfo.getRevision() +
+                SNAPSHOT_FILE_SUFFIX);
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            log.error("Failed to load snapshot " + snapshotInfo.getRevision() + " of siddhi app " +
+                    snapshotInfo.getSiddhiAppId() + ": " + e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<IncrementalSnapshotInfo> getListOfRevisionsToLoad(long restoreTime, String siddhiAppName) {
+        List<IncrementalSnapshotInfo> revisions = new ArrayList<>();
+        for (IncrementalSnapshotInfo snapshotInfo : getSnapshots(siddhiAppName)) {
+            if (snapshotInfo.getTime() <= restoreTime) {
+                revisions.add(snapshotInfo);
+            }
+        }
+        return revisions;
+    }
+
+    @Override
+    public String getLastRevision(String siddhiAppId) {
+        IncrementalSnapshotInfo lastSnapshotInfo = null;
+        for (IncrementalSnapshotInfo snapshotInfo : getSnapshots(siddhiAppId)) {
+            if (lastSnapshotInfo == null || snapshotInfo.getTime() > lastSnapshotInfo.getTime()) {
+                lastSnapshotInfo = snapshotInfo;
+            }
+        }
+        return (lastSnapshotInfo == null) ? null : lastSnapshotInfo.getRevision();
+    }
+
+    @Override
+    public void clearAllRevisions(String siddhiAppId) {
+        for (Path file : listFiles(folder.resolve(siddhiAppId))) {
+            delete(file);
+        }
+    }
+
+    /**
+     * Get the snapshots of the elements of a siddhi app.
+     */
+    private List<IncrementalSnapshotInfo> getSnapshots(String siddhiAppId) {
+        List<IncrementalSnapshotInfo> snapshots = new ArrayList<>();
+        for (Path file : listFiles(folder.resolve(siddhiAppId))) {
+            String fileName = file.getFileName().toString();
+            if (!fileName.endsWith(SNAPSHOT_FILE_SUFFIX)) {
+                continue;
+            }
+            IncrementalSnapshotInfo snapshotInfo = PersistenceHelper.convertRevision(
+                    fileName.substring(0, fileName.length() - SNAPSHOT_FILE_SUFFIX.length()));
+            if (siddhiAppId.equals(snapshotInfo.getSiddhiAppId()) && snapshotInfo.getQueryName() != null &&
+                    snapshotInfo.getElementId() != null) {
+                snapshots.add(snapshotInfo);
+            }
+        }
+        return snapshots;
+    }
+
+    private void deleteEarlierSnapshots(IncrementalSnapshotInfo fullSnapshotInfo) {
+        Path siddhiAppFolder = folder.resolve(fullSnapshotInfo.getSiddhiAppId());
+        for (IncrementalSnapshotInfo snapshotInfo : getSnapshots(fullSnapshotInfo.getSiddhiAppId())) {
+            if (snapshotInfo.getTime() < fullSnapshotInfo.getTime() &&
+                    snapshotInfo.getQueryName().equals(fullSnapshotInfo.getQueryName()) &&
+                    snapshotInfo.getElementId().equals(fullSnapshotInfo.getElementId())) {
+                delete(siddhiAppFolder.resolve(snapshotInfo.getRevision() + SNAPSHOT_FILE_SUFFIX));
+            }
+        }
+    }
+
+    private static List<Path> listFiles(Path directory) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path file : directoryStream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            log.error("Failed to list the snapshots in " + directory + ": " + e);
+        }
+        return files;
+    }
+
+    private static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories can not be opened for syncing on Windows, the rename is left to the file system there
+            log.debug("Unable to sync snapshot directory " + directory + ": " + e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.delete(file);
+        } catch (NoSuchFileException e) {
+            // Already deleted by a concurrent save of the same element
+        } catch (IOException e) {
+            log.error("Failed to delete snapshot file " + file + ": " + e);
+        }
+    }
+}
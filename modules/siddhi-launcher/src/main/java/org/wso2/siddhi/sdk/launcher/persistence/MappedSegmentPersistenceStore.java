@@ -0,0 +1,435 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.persistence;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.util.persistence.IncrementalPersistenceStore;
+import org.wso2.siddhi.core.util.persistence.util.IncrementalSnapshotInfo;
+import org.wso2.siddhi.core.util.persistence.util.PersistenceHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Incremental persistence store which appends the snapshots of a siddhi app to memory mapped segment files, so that a
+ * snapshot is saved with a memory copy rather than a file of its own.
+ * <p>
+ * A record is laid out as its length, the CRC32 checksum of the rest of the record, the length of the revision, the
+ * revision and the snapshot. The length is written last, and the segments are forced to the disk in the background
+ * every {@value #SYNC_INTERVAL_MILLIS} ms rather than on each save. When the segments are read back, a segment ends at
+ * its first record which is not completely written, hence a crash loses at most the snapshots saved since the last
+ * sync, and never restores a torn snapshot.
+ * <p>
+ * An in memory index keeps, for each element of a siddhi app, its last full snapshot and the increments saved after
+ * it. Older records are garbage, and a segment whose records are mostly garbage is compacted in the background by
+ * appending its live records to the active segment and deleting it.
+ */
+public class MappedSegmentPersistenceStore implements IncrementalPersistenceStore {
+
+    private static final Logger log = Logger.getLogger(MappedSegmentPersistenceStore.class);
+
+    private static final String SEGMENT_FILE_SUFFIX = ".segment";
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Length, checksum and revision length fields of a record.
+     */
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    /**
+     * A sealed segment is compacted once less than this share of its bytes belongs to live records.
+     */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final Path folder;
+    private final int segmentSize;
+    private final Map<String, SegmentLog> segmentLogs = new HashMap<>();
+    private final ScheduledExecutorService syncer;
+
+    public MappedSegmentPersistenceStore(String folder, int segmentSize) {
+        this.folder = Paths.get(folder);
+        this.segmentSize = segmentSize;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Siddhi Snapshot Segment Syncer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(IncrementalSnapshotInfo snapshotInfo, byte[] snapshot) {
+        try {
+            synchronized (this) {
+                getSegmentLog(snapshotInfo.getSiddhiAppId()).append(snapshotInfo, snapshot);
+            }
+        } catch (IOException e) {
+            log.error("Failed to save snapshot " + snapshotInfo.getRevision() + " of siddhi app " +
+                    snapshotInfo.getSiddhiAppId() + ": " + e);
+        }
+    }
+
+    @Override
+    public void setProperties(Map properties) {
+        // The store is configured by the launcher
+    }
+
+    @Override
+    public synchronized byte[] load(IncrementalSnapshotInfo snapshotInfo) {
+        Record record = getSegmentLog(snapshotInfo.getSiddhiAppId()).records.get(snapshotInfo.getRevision());
+        return (record == null) ? null : record.read();
+    }
+
+    @Override
+    public synchronized List<IncrementalSnapshotInfo> getListOfRevisionsToLoad(long restoreTime,
+                                                                            String siddhiAppName) {
+        List<IncrementalSnapshotInfo> revisions = new ArrayList<>();
+        for (Record record : getSegmentLog(siddhiAppName).records.values()) {
+            if (record.snapshotInfo.getTime() <= restoreTime) {
+                revisions.add(record.snapshotInfo);
+            }
+        }
+        return revisions;
+    }
+
+    @Override
+    public synchronized String getLastRevision(String siddhiAppId) {
+        IncrementalSnapshotInfo lastSnapshotInfo = null;
+        for (Record record : getSegmentLog(siddhiAppId).records.values()) {
+            if (lastSnapshotInfo == null || record.snapshotInfo.getTime() > lastSnapshotInfo.getTime()) {
+                lastSnapshotInfo = record.snapshotInfo;
+            }
+        }
+        return (lastSnapshotInfo == null) ? null : lastSnapshotInfo.getRevision();
+    }
+
+    @Override
+    public synchronized void clearAllRevisions(String siddhiAppId) {
+        SegmentLog segmentLog = getSegmentLog(siddhiAppId);
+        for (Segment segment : segmentLog.segments.values().toArray(new Segment[0])) {
+            segmentLog.delete(segment);
+        }
+        segmentLog.records.clear();
+        segmentLog.elements.clear();
+        segmentLog.activeSegment = null;
+    }
+
+    /**
+     * Force the segments to the disk and stop the background sync and compaction.
+     */
+    public void close() {
+        syncer.shutdownNow();
+        sync();
+    }
+
+    private SegmentLog getSegmentLog(String siddhiAppId) {
+        return segmentLogs.computeIfAbsent(siddhiAppId, id -> new SegmentLog(folder.resolve(id)));
+    }
+
+    /**
+     * Force the segments written since the previous sync to the disk, and compact the segments with little live data.
+     */
+    private void sync() {
+        List<Segment> dirtySegments = new ArrayList<>();
+        synchronized (this) {
+            for (SegmentLog segmentLog : segmentLogs.values()) {
+                for (Segment segment : segmentLog.segments.values()) {
+                    if (segment.dirty) {
+                        segment.dirty = false;
+                        dirtySegments.add(segment);
+                    }
+                }
+            }
+        }
+        // Forcing does not block the saves, which only append beyond the forced records
+        for (Segment segment : dirtySegments) {
+            segment.buffer.force();
+        }
+        synchronized (this) {
+            for (SegmentLog segmentLog : segmentLogs.values()) {
+                try {
+                    segmentLog.compact();
+                } catch (IOException e) {
+                    log.error("Failed to compact the snapshot segments in " + segmentLog.folder + ": " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The segments of a siddhi app, along with the index of its live records.
+     */
+    private final class SegmentLog {
+
+        private final Path folder;
+        private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+        /**
+         * Live records by revision, and the live records of each element, starting with its last full snapshot.
+         */
+        private final Map<String, Record> records = new LinkedHashMap<>();
+        private final Map<List<String>, List<Record>> elements = new HashMap<>();
+        private Segment activeSegment;
+
+        private SegmentLog(Path folder) {
+            this.folder = folder;
+            if (Files.isDirectory(folder)) {
+                recover();
+            }
+        }
+
+        /**
+         * Read the records of the existing segments in order. New records are appended to a new segment, so that no
+         * record is written behind a record which may not have reached the disk.
+         */
+        private void recover() {
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(folder,
+                    "*" + SEGMENT_FILE_SUFFIX)) {
+                for (Path path : directoryStream) {
+                    String fileName = path.getFileName().toString();
+                    try {
+                        long id = Long.parseLong(fileName.substring(0, fileName.length() -
+                                SEGMENT_FILE_SUFFIX.length()));
+                        segments.put(id, new Segment(id, path, map(path, Files.size(path))));
+                    } catch (NumberFormatException e) {
+                        log.warn("Skipping unknown snapshot segment file " + path);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to read the snapshot segments in " + folder + ": " + e);
+            }
+            for (Segment segment : segments.values()) {
+                ByteBuffer buffer = segment.buffer;
+                int offset = 0;
+                while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                    int length = buffer.getInt(offset);
+                    if (length < RECORD_HEADER_SIZE || offset + length > buffer.capacity() ||
+                            (int) checksum(buffer, offset + 8, length - 8) != buffer.getInt(offset + 4)) {
+                        break;
+                    }
+                    byte[] revision = new byte[buffer.getInt(offset + 8)];
+                    ByteBuffer view = buffer.duplicate();
+                    view.position(offset + RECORD_HEADER_SIZE);
+                    view.get(revision);
+                    IncrementalSnapshotInfo snapshotInfo = PersistenceHelper.convertRevision(
+                            new String(revision, StandardCharsets.UTF_8));
+                    index(new Record(snapshotInfo, segment, offset, length, revision.length));
+                    offset += length;
+                }
+                segment.position = offset;
+            }
+        }
+
+        /**
+         * Append a record, returning the segment it was written to.
+         */
+        private Segment append(IncrementalSnapshotInfo snapshotInfo, byte[] snapshot) throws IOException {
+            byte[] revision = snapshotInfo.getRevision().getBytes(StandardCharsets.UTF_8);
+            int length = RECORD_HEADER_SIZE + revision.length + snapshot.length;
+            Segment segment = getSegment(length);
+            int offset = segment.position;
+            ByteBuffer buffer = segment.buffer;
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset + 8);
+            view.putInt(revision.length);
+            view.put(revision);
+            view.put(snapshot);
+            buffer.putInt(offset + 4, (int) checksum(buffer, offset + 8, length - 8));
+            // The length commits the record
+            buffer.putInt(offset, length);
+            segment.position = offset + length;
+            segment.dirty = true;
+            index(new Record(snapshotInfo, segment, offset, length, revision.length));
+            return segment;
+        }
+
+        /**
+         * Get a segment with room for a record, starting a new active segment if the current one is full.
+         */
+        private Segment getSegment(int length) throws IOException {
+            if (activeSegment == null || activeSegment.position + length > activeSegment.buffer.capacity()) {
+                Files.createDirectories(folder);
+                long id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+                Path path = folder.resolve(String.format("%020d", id) + SEGMENT_FILE_SUFFIX);
+                activeSegment = new Segment(id, path, map(path, Math.max(segmentSize, length)));
+                segments.put(id, activeSegment);
+            }
+            return activeSegment;
+        }
+
+        private void index(Record record) {
+            IncrementalSnapshotInfo snapshotInfo = record.snapshotInfo;
+            List<String> element = Arrays.asList(snapshotInfo.getQueryName(), snapshotInfo.getElementId());
+            List<Record> elementRecords = elements.computeIfAbsent(element, key -> new ArrayList<>());
+            Record previousRecord = records.get(snapshotInfo.getRevision());
+            if (previousRecord != null) {
+                // A copy of a record made by a compaction, the original may not be deleted yet when read back
+                elementRecords.remove(previousRecord);
+                release(previousRecord);
+            }
+            for (Record elementRecord : elementRecords) {
+                if (elementRecord.snapshotInfo.getType() != IncrementalSnapshotInfo.SnapshotType.INCREMENT &&
+                        elementRecord.snapshotInfo.getTime() > snapshotInfo.getTime()) {
+                    // The record precedes the last full snapshot of the element
+                    return;
+                }
+            }
+            if (snapshotInfo.getType() != IncrementalSnapshotInfo.SnapshotType.INCREMENT) {
+                // A full snapshot makes the earlier records of the element garbage
+                for (Iterator<Record> iterator = elementRecords.iterator(); iterator.hasNext(); ) {
+                    Record elementRecord = iterator.next();
+                    if (elementRecord.snapshotInfo.getTime() <= snapshotInfo.getTime()) {
+                        iterator.remove();
+                        release(elementRecord);
+                    }
+                }
+            }
+            records.put(snapshotInfo.getRevision(), record);
+            elementRecords.add(record);
+            record.segment.liveBytes += record.length;
+        }
+
+        private void release(Record record) {
+            if (records.get(record.snapshotInfo.getRevision()) == record) {
+                records.remove(record.snapshotInfo.getRevision());
+                record.segment.liveBytes -= record.length;
+            }
+        }
+
+        /**
+         * Move the live records of the sealed segments which are mostly garbage to the active segment.
+         */
+        private void compact() throws IOException {
+            for (Segment segment : segments.values().toArray(new Segment[0])) {
+                if (segment == activeSegment || segment.liveBytes >= segment.position * COMPACTION_THRESHOLD) {
+                    continue;
+                }
+                if (segment.liveBytes > 0) {
+                    // The copies may roll over to new active segments when the current one fills up
+                    Set<Segment> copySegments = new LinkedHashSet<>();
+                    for (Record record : records.values().toArray(new Record[0])) {
+                        if (record.segment == segment) {
+                            copySegments.add(append(record.snapshotInfo, record.read()));
+                        }
+                    }
+                    // The copies reach the disk before the segment holding the originals is deleted
+                    for (Segment copySegment : copySegments) {
+                        copySegment.buffer.force();
+                    }
+                }
+                delete(segment);
+            }
+        }
+
+        private void delete(Segment segment) {
+            segments.remove(segment.id);
+            try {
+                // The mapping of the segment is released once the buffer is garbage collected
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.error("Failed to delete snapshot segment " + segment.path + ": " + e);
+            }
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static long checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return crc.getValue();
+    }
+
+    /**
+     * A memory mapped segment file, of which the bytes up to the position are written.
+     */
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private long liveBytes;
+        private volatile boolean dirty;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * A snapshot record in a segment.
+     */
+    private static final class Record {
+
+        private final IncrementalSnapshotInfo snapshotInfo;
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final int revisionLength;
+
+        private Record(IncrementalSnapshotInfo snapshotInfo, Segment segment, int offset, int length,
+                       int revisionLength) {
+            this.snapshotInfo = snapshotInfo;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.revisionLength = revisionLength;
+        }
+
+        private byte[] read() {
+            byte[] snapshot = new byte[length - RECORD_HEADER_SIZE - revisionLength];
+            ByteBuffer view = segment.buffer.duplicate();
+            view.position(offset + RECORD_HEADER_SIZE + revisionLength);
+            view.get(snapshot);
+            return snapshot;
+        }
+    }
+}
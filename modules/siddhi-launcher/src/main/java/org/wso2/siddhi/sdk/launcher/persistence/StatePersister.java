@@ -0,0 +1,245 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.persistence;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.exception.CannotRestoreSiddhiAppStateException;
+import org.wso2.siddhi.core.util.persistence.IncrementalPersistenceStore;
+import org.wso2.siddhi.core.util.persistence.util.IncrementalSnapshotInfo;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.util.Constants;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Persists the state of running siddhi apps every given number of seconds to the persistence store of the launcher,
+ * and restores the last persisted state of a siddhi app when it is started. Persistence is enabled by giving the
+ * directory of the store in the {@value Constants#SYSTEM_PROP_RUN_PERSISTENCE_DIR} system property, and the store
+ * keeps a file per snapshot unless the segment store is chosen with the
+ * {@value Constants#SYSTEM_PROP_RUN_PERSISTENCE_STORE} system property.
+ */
+public class StatePersister {
+
+    private static final Logger log = Logger.getLogger(StatePersister.class);
+
+    /**
+     * Time the store should stay idle after a persist for the snapshots to be taken as saved.
+     */
+    private static final long SAVE_QUIET_PERIOD_MILLIS = 500;
+
+    private final int interval;
+    private final IncrementalPersistenceStore persistenceStore;
+    private volatile long lastSaveTime;
+    private final List<Supplier<SiddhiAppRuntime>> siddhiAppRuntimeSuppliers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    public StatePersister() {
+        this.interval = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_INTERVAL,
+                Constants.DEFAULT_RUN_PERSISTENCE_INTERVAL, 1);
+        String persistenceDir = System.getProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_DIR).trim();
+        String store = System.getProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_STORE,
+                Constants.PERSISTENCE_STORE_FILE);
+        if (store.trim().equalsIgnoreCase(Constants.PERSISTENCE_STORE_SEGMENT)) {
+            int segmentSize = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_SEGMENT_SIZE,
+                    Constants.DEFAULT_RUN_PERSISTENCE_SEGMENT_SIZE, 1);
+            // A segment is mapped as a single buffer, which can not exceed Integer.MAX_VALUE bytes
+            long segmentBytes = Math.min((long) segmentSize * 1024 * 1024, Integer.MAX_VALUE);
+            this.persistenceStore = new MappedSegmentPersistenceStore(persistenceDir, (int) segmentBytes);
+        } else {
+            if (!store.trim().equalsIgnoreCase(Constants.PERSISTENCE_STORE_FILE)) {
+                log.warn("Invalid value " + store + " for " + Constants.SYSTEM_PROP_RUN_PERSISTENCE_STORE +
+                        ", using " + Constants.PERSISTENCE_STORE_FILE);
+            }
+            this.persistenceStore = new IncrementalFilePersistenceStore(persistenceDir);
+        }
+    }
+
+    /**
+     * Check whether the state of the siddhi apps is persisted.
+     *
+     * @return true if a persistence directory is given, otherwise false.
+     */
+    public static boolean isEnabled() {
+        String persistenceDir = System.getProperty(Constants.SYSTEM_PROP_RUN_PERSISTENCE_DIR);
+        return persistenceDir != null && !persistenceDir.trim().isEmpty();
+    }
+
+    /**
+     * Set the persistence store on a siddhi manager. The store should be set before the siddhi app runtimes are
+     * created.
+     *
+     * @param siddhiManager the siddhi manager
+     */
+    public void configure(SiddhiManager siddhiManager) {
+        siddhiManager.setIncrementalPersistenceStore(new SaveTrackingStore());
+    }
+
+    /**
+     * Restore the last persisted state of a started siddhi app, if there is any. A state which cannot be restored is
+     * logged, and the siddhi app keeps running with empty state.
+     *
+     * @param siddhiAppRuntime the siddhi app runtime
+     */
+    public static void restore(SiddhiAppRuntime siddhiAppRuntime) {
+        long startTime = System.nanoTime();
+        try {
+            String revision = siddhiAppRuntime.restoreLastRevision();
+            if (revision != null) {
+                log.info("Restored the state of siddhi app " + siddhiAppRuntime.getName() + " from revision " +
+                        revision + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+            }
+        } catch (CannotRestoreSiddhiAppStateException | RuntimeException e) {
+            log.error("Failed to restore the state of siddhi app " + siddhiAppRuntime.getName() +
+                    ", which is started with empty state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Persist the state of a siddhi app periodically. The runtime is looked up at each persist, as it is replaced
+     * when the siddhi app is redeployed or restarted.
+     *
+     * @param siddhiAppRuntimeSupplier supplier of the current runtime of the siddhi app, which supplies null while
+     *                                 the siddhi app is not running
+     */
+    public void add(Supplier<SiddhiAppRuntime> siddhiAppRuntimeSupplier) {
+        siddhiAppRuntimeSuppliers.add(siddhiAppRuntimeSupplier);
+    }
+
+    /**
+     * Start persisting the siddhi apps every interval.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Siddhi State Persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::persist, interval, interval, TimeUnit.SECONDS);
+        log.info("Persisting the state of siddhi apps every " + interval + " seconds");
+    }
+
+    /**
+     * Persist the state of the siddhi apps now.
+     */
+    public void persist() {
+        for (Supplier<SiddhiAppRuntime> siddhiAppRuntimeSupplier : siddhiAppRuntimeSuppliers) {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiAppRuntimeSupplier.get();
+            if (siddhiAppRuntime == null) {
+                continue;
+            }
+            try {
+                siddhiAppRuntime.persist();
+            } catch (RuntimeException e) {
+                log.error("Failed to persist the state of siddhi app " + siddhiAppRuntime.getName() + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Persist the state of the siddhi apps now, and wait for the snapshots to be saved. Siddhi saves the snapshots of
+     * a persist asynchronously, hence they are taken as saved once the store has not saved a snapshot for
+     * {@value #SAVE_QUIET_PERIOD_MILLIS} ms.
+     *
+     * @param timeoutMillis maximum time to wait for the snapshots to be saved
+     * @return true if the snapshots are saved, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean persistAndWait(long timeoutMillis) throws InterruptedException {
+        long persistTime = System.nanoTime();
+        persist();
+        long deadline = persistTime + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            long idleNanos = System.nanoTime() - Math.max(persistTime, lastSaveTime);
+            if (idleNanos >= TimeUnit.MILLISECONDS.toNanos(SAVE_QUIET_PERIOD_MILLIS)) {
+                return true;
+            }
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(SAVE_QUIET_PERIOD_MILLIS / 10);
+        }
+    }
+
+    /**
+     * Stop persisting the siddhi apps periodically.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Stop persisting the siddhi apps, and close the persistence store once the last snapshots are saved.
+     */
+    public void close() {
+        stop();
+        if (persistenceStore instanceof MappedSegmentPersistenceStore) {
+            ((MappedSegmentPersistenceStore) persistenceStore).close();
+        }
+    }
+
+    /**
+     * Persistence store which records the time of the last save before saving to the store of the launcher.
+     */
+    private class SaveTrackingStore implements IncrementalPersistenceStore {
+
+        @Override
+        public void save(IncrementalSnapshotInfo snapshotInfo, byte[] snapshot) {
+            lastSaveTime = System.nanoTime();
+            persistenceStore.save(snapshotInfo, snapshot);
+            lastSaveTime = System.nanoTime();
+        }
+
+        @Override
+        public void setProperties(Map properties) {
+            persistenceStore.setProperties(properties);
+        }
+
+        @Override
+        public byte[] load(IncrementalSnapshotInfo snapshotInfo) {
+            return persistenceStore.load(snapshotInfo);
+        }
+
+        @Override
+        public List<IncrementalSnapshotInfo> getListOfRevisionsToLoad(long restoreTime, String siddhiAppName) {
+            return persistenceStore.getListOfRevisionsToLoad(restoreTime, siddhiAppName);
+        }
+
+        @Override
+        public String getLastRevision(String siddhiAppId) {
+            return persistenceStore.getLastRevision(siddhiAppId);
+        }
+
+        @Override
+        public void clearAllRevisions(String siddhiAppId) {
+            persistenceStore.clearAllRevisions(siddhiAppId);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.run;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.exception.CannotRestoreSiddhiAppStateException;
+import org.wso2.siddhi.core.stream.input.source.Source;
+import org.wso2.siddhi.core.stream.output.StreamCallback;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.exception.FileReadException;
+import org.wso2.siddhi.sdk.launcher.util.InputFeeder;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Watches the files of running siddhi apps and redeploys an app when its file is changed. The changed app is
+ * compiled while the running app keeps processing events, after which the input feeder and the sources of the
+ * running app are paused, the events queued in its {@code @async} streams are drained, its state is snapshotted and
+ * restored into the changed app, and the input is resumed on the changed app. Input is hence only held for the time
+ * it takes to swap the runtimes. A feeder which is in a delay or waiting for the replay time of an event is paused
+ * right away, and waits for the rest of it after the swap.
+ * <p>
+ * The queues of the {@code @async} streams are not part of a snapshot, and they are not exposed to be inspected,
+ * hence they are drained by waiting until none of these streams has delivered an event for
+ * {@value #DRAIN_QUIET_PERIOD_MILLIS} ms, for at most {@value #DRAIN_TIMEOUT_MILLIS} ms. Events still queued after
+ * that, e.g. behind a processor which is stuck, are lost with the running app.
+ * <p>
+ * State is carried over as far as the changed app is compatible with it. When the snapshot cannot be restored, e.g.
+ * as a query with state is changed, the changed app is started with empty state. When the changed app fails to
+ * start, the previous version is restarted with its state.
+ */
+public class HotRedeployer implements Runnable {
+
+    private static final Logger log = Logger.getLogger(HotRedeployer.class);
+
+    /**
+     * Time to wait for further changes of a file before it is redeployed, as editors tend to save a file in steps.
+     */
+    private static final long QUIET_PERIOD_MILLIS = 300;
+
+    private static final long DRAIN_QUIET_PERIOD_MILLIS = 100;
+    private static final long DRAIN_TIMEOUT_MILLIS = 2000;
+
+    private final SiddhiManager siddhiManager;
+    private final Map<Path, Deployment> deployments = new ConcurrentHashMap<>();
+    private final Set<Path> watchedDirectories = new HashSet<>();
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public HotRedeployer(SiddhiManager siddhiManager) {
+        this.siddhiManager = siddhiManager;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new FileReadException("Failed to watch the siddhi app files: " + e.getMessage(), e);
+        }
+        this.thread = new Thread(this, "Siddhi App Watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Watch the file of a running siddhi app.
+     *
+     * @param siddhiAppFile    the siddhi app file
+     * @param siddhiAppRuntime the running runtime of the siddhi app
+     * @param inputFeeder      the input feeder of the siddhi app, null if its input is not fed from a file
+     * @param callbackAttacher adds the callbacks of the launcher, such as the output statistics, to a runtime of
+     *                         the siddhi app before it is started
+     */
+    public synchronized void watch(SiddhiAppFile siddhiAppFile, SiddhiAppRuntime siddhiAppRuntime,
+                                   InputFeeder inputFeeder, Consumer<SiddhiAppRuntime> callbackAttacher) {
+        Path path = Paths.get(siddhiAppFile.getPath()).toAbsolutePath().normalize();
+        Path directory = path.getParent();
+        if (watchedDirectories.add(directory)) {
+            try {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                watchedDirectories.remove(directory);
+                throw new FileReadException("Failed to watch directory " + directory + ": " + e.getMessage(), e);
+            }
+        }
+        deployments.put(path, new Deployment(siddhiAppFile.getSiddhiApp(), siddhiAppRuntime, inputFeeder,
+                callbackAttacher));
+    }
+
+    /**
+     * Start watching the siddhi app files.
+     */
+    public void start() {
+        thread.start();
+        log.info("Watching " + deployments.size() + " siddhi app files for changes");
+    }
+
+    /**
+     * Get the runtime of a siddhi app which is currently deployed.
+     *
+     * @param siddhiAppPath path of the siddhi app file
+     * @return the runtime, or null if the file is not watched
+     */
+    public SiddhiAppRuntime getSiddhiAppRuntime(String siddhiAppPath) {
+        Deployment deployment = deployments.get(Paths.get(siddhiAppPath).toAbsolutePath().normalize());
+        return (deployment == null) ? null : deployment.siddhiAppRuntime;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Set<Path> changedPaths = new HashSet<>();
+                WatchKey watchKey = watchService.take();
+                while (watchKey != null) {
+                    Path directory = (Path) watchKey.watchable();
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+                            changedPaths.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    watchKey.reset();
+                    watchKey = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                for (Path path : changedPaths) {
+                    Deployment deployment = deployments.get(path);
+                    if (deployment != null) {
+                        redeploy(path, deployment);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // The watcher is stopped
+        }
+    }
+
+    /**
+     * Stop watching the siddhi app files.
+     */
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.error("Error in closing the siddhi app watcher: " + e);
+        }
+    }
+
+    private void redeploy(Path path, Deployment deployment) throws InterruptedException {
+        String siddhiApp;
+        try {
+            siddhiApp = LauncherUtils.validateAndGetSiddhdiApp(path.toString());
+        } catch (RuntimeException e) {
+            log.error("Changed siddhi app " + path + " is not redeployed: " + e.getMessage());
+            return;
+        }
+        if (siddhiApp.trim().isEmpty() || siddhiApp.equals(deployment.siddhiApp)) {
+            return;
+        }
+        String siddhiAppName = SiddhiAppUtils.getAppName(siddhiApp, path.getFileName().toString());
+        for (Deployment otherDeployment : deployments.values()) {
+            if (otherDeployment != deployment && otherDeployment.siddhiAppRuntime.getName().equals(siddhiAppName)) {
+                log.error("Changed siddhi app " + path + " is not redeployed: another siddhi app is named " +
+                        siddhiAppName);
+                return;
+            }
+        }
+
+        // The changed app is compiled while the running app keeps processing events
+        SiddhiAppRuntime siddhiAppRuntime;
+        try {
+            siddhiAppRuntime = createSiddhiAppRuntime(siddhiApp, deployment);
+        } catch (RuntimeException e) {
+            log.error("Changed siddhi app " + path + " is not redeployed, the running version is kept: " + e);
+            return;
+        }
+
+        SiddhiAppRuntime previousSiddhiAppRuntime = deployment.siddhiAppRuntime;
+        InputFeeder inputFeeder = deployment.inputFeeder;
+        if (inputFeeder != null) {
+            inputFeeder.pause();
+            inputFeeder.awaitPaused();
+        }
+        long pauseStartTime = System.nanoTime();
+        try {
+            byte[] snapshot;
+            try {
+                pauseSources(previousSiddhiAppRuntime);
+                if (!awaitAsyncStreamsDrained(previousSiddhiAppRuntime)) {
+                    log.warn("Events of siddhi app " + previousSiddhiAppRuntime.getName() + " are still being " +
+                            "processed after " + DRAIN_TIMEOUT_MILLIS + " ms, events which are still queued in " +
+                            "its @async streams are lost with the redeploy");
+                }
+                snapshot = previousSiddhiAppRuntime.snapshot();
+            } catch (RuntimeException e) {
+                log.error("Changed siddhi app " + path + " is not redeployed, the running version is kept: " + e);
+                siddhiAppRuntime.shutdown();
+                register(previousSiddhiAppRuntime);
+                resumeSources(previousSiddhiAppRuntime);
+                return;
+            }
+            // The previous runtime is shut down before the changed one starts, as both would bind the same sources
+            previousSiddhiAppRuntime.shutdown();
+            SiddhiAppRuntime liveSiddhiAppRuntime;
+            try {
+                liveSiddhiAppRuntime = startWithState(siddhiAppRuntime, siddhiApp, snapshot, deployment);
+                // A runtime is recreated with empty state when the snapshot cannot be restored into it
+                boolean isStateRestored = liveSiddhiAppRuntime == siddhiAppRuntime;
+                deployment.siddhiApp = siddhiApp;
+                log.info("Redeployed siddhi app " + liveSiddhiAppRuntime.getName() + " from " + path +
+                        (isStateRestored ? " with its state" : "") + ", input was paused for " +
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pauseStartTime) + " ms");
+            } catch (RuntimeException e) {
+                log.error("Changed siddhi app " + path + " failed to start, the previous version is restarted: " +
+                        e);
+                try {
+                    liveSiddhiAppRuntime = startWithState(createSiddhiAppRuntime(deployment.siddhiApp, deployment),
+                            deployment.siddhiApp, snapshot, deployment);
+                } catch (RuntimeException restartException) {
+                    log.error("Failed to restart siddhi app " + previousSiddhiAppRuntime.getName() + " from " +
+                            path + ", the app is stopped and no further input is sent to it: " + restartException);
+                    if (inputFeeder != null) {
+                        inputFeeder.stop();
+                    }
+                    return;
+                }
+            }
+            // Shutting down a runtime removes its name from the siddhi manager, which the live runtime shares
+            register(liveSiddhiAppRuntime);
+            deployment.siddhiAppRuntime = liveSiddhiAppRuntime;
+            if (inputFeeder != null) {
+                inputFeeder.setSiddhiAppRuntime(liveSiddhiAppRuntime);
+            }
+        } finally {
+            if (inputFeeder != null) {
+                inputFeeder.resume();
+            }
+        }
+    }
+
+    /**
+     * Wait until the events queued in the {@code @async} streams of a runtime are processed, i.e. until none of these
+     * streams has delivered an event for the drain quiet period.
+     *
+     * @return true if the streams are quiet, false if the drain timeout elapsed first
+     */
+    private static boolean awaitAsyncStreamsDrained(SiddhiAppRuntime siddhiAppRuntime) throws InterruptedException {
+        Set<String> asyncStreamIds = SiddhiAppUtils.getAsyncStreamIds(siddhiAppRuntime.getStreamDefinitionMap());
+        if (asyncStreamIds.isEmpty()) {
+            return true;
+        }
+        // The callbacks are added to the runtime which is replaced, and hence only watch this redeploy
+        AtomicLong lastEventTime = new AtomicLong(System.nanoTime());
+        for (String streamId : asyncStreamIds) {
+            siddhiAppRuntime.addCallback(streamId, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    lastEventTime.set(System.nanoTime());
+                }
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        while (System.nanoTime() - lastEventTime.get() < TimeUnit.MILLISECONDS.toNanos(DRAIN_QUIET_PERIOD_MILLIS)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(DRAIN_QUIET_PERIOD_MILLIS / 10);
+        }
+        return true;
+    }
+
+    /**
+     * Start a runtime of a siddhi app and restore a snapshot into it. The sources, which are connected by the start,
+     * are paused while the snapshot is restored, so that no event they receive meanwhile is overwritten by the
+     * restore. When the snapshot cannot be restored, the runtime is replaced by a new one with empty state.
+     *
+     * @return the started runtime
+     */
+    private SiddhiAppRuntime startWithState(SiddhiAppRuntime siddhiAppRuntime, String siddhiApp, byte[] snapshot,
+                                            Deployment deployment) {
+        try {
+            siddhiAppRuntime.start();
+        } catch (RuntimeException e) {
+            siddhiAppRuntime.shutdown();
+            throw e;
+        }
+        try {
+            pauseSources(siddhiAppRuntime);
+            siddhiAppRuntime.restore(snapshot);
+            resumeSources(siddhiAppRuntime);
+            return siddhiAppRuntime;
+        } catch (CannotRestoreSiddhiAppStateException | RuntimeException e) {
+            log.warn("State of siddhi app " + siddhiAppRuntime.getName() + " is not compatible with " +
+                    "its changed version, which is started with empty state: " + e.getMessage());
+        }
+        siddhiAppRuntime.shutdown();
+        SiddhiAppRuntime emptySiddhiAppRuntime = createSiddhiAppRuntime(siddhiApp, deployment);
+        try {
+            emptySiddhiAppRuntime.start();
+        } catch (RuntimeException e) {
+            emptySiddhiAppRuntime.shutdown();
+            throw e;
+        }
+        return emptySiddhiAppRuntime;
+    }
+
+    private SiddhiAppRuntime createSiddhiAppRuntime(String siddhiApp, Deployment deployment) {
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+        deployment.callbackAttacher.accept(siddhiAppRuntime);
+        return siddhiAppRuntime;
+    }
+
+    /**
+     * Make a runtime the one the siddhi manager knows under its name.
+     */
+    private void register(SiddhiAppRuntime siddhiAppRuntime) {
+        siddhiManager.getSiddhiAppRuntimeMap().put(siddhiAppRuntime.getName(), siddhiAppRuntime);
+    }
+
+    /**
+     * Pause the sources of a runtime, so that no event reaches it while its state is snapshotted or restored.
+     */
+    static void pauseSources(SiddhiAppRuntime siddhiAppRuntime) {
+        for (List<Source> sources : siddhiAppRuntime.getSources()) {
+            for (Source source : sources) {
+                source.pause();
+            }
+        }
+    }
+
+    static void resumeSources(SiddhiAppRuntime siddhiAppRuntime) {
+        for (List<Source> sources : siddhiAppRuntime.getSources()) {
+            for (Source source : sources) {
+                source.resume();
+            }
+        }
+    }
+
+    /**
+     * A siddhi app which is deployed from a watched file.
+     */
+    private static class Deployment {
+
+        private volatile String siddhiApp;
+        private volatile SiddhiAppRuntime siddhiAppRuntime;
+        private final InputFeeder inputFeeder;
+        private final Consumer<SiddhiAppRuntime> callbackAttacher;
+
+        private Deployment(String siddhiApp, SiddhiAppRuntime siddhiAppRuntime, InputFeeder inputFeeder,
+                           Consumer<SiddhiAppRuntime> callbackAttacher) {
+            this.siddhiApp = siddhiApp;
+            this.siddhiAppRuntime = siddhiAppRuntime;
+            this.inputFeeder = inputFeeder;
+            this.callbackAttacher = callbackAttacher;
+        }
+    }
+}
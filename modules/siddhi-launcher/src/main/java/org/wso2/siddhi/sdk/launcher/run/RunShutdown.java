@@ -0,0 +1,254 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.run;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.output.StreamCallback;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.persistence.StatePersister;
+import org.wso2.siddhi.sdk.launcher.util.Constants;
+import org.wso2.siddhi.sdk.launcher.util.InputFeeder;
+import org.wso2.siddhi.sdk.launcher.util.OutputStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Shuts the siddhi apps of a run down gracefully, either when the launcher exits or, in the run until input end mode,
+ * once the event input files are fed. The sources are paused, the input feeders are stopped and joined, and the
+ * events already sent are drained, i.e. the run waits until no stream of the apps has received an event for
+ * {@value #DRAIN_QUIET_PERIOD_MILLIS} ms. The queues of the {@code @async} streams and the sinks are not inspected,
+ * hence this is a heuristic: events queued behind a processor which is stuck for longer than the quiet period, or
+ * held by a sink which buffers or retries its publishing, are not waited for. A final snapshot is persisted if
+ * persistence is enabled, after which the apps are shut down and the statistics of the run are logged.
+ * <p>
+ * The streams are only watched once the shutdown starts, so a run does not pay for the drain detection while it is
+ * processing its input.
+ */
+final class RunShutdown {
+
+    private static final Logger log = Logger.getLogger(RunShutdown.class);
+
+    private static final long DRAIN_QUIET_PERIOD_MILLIS = 500;
+
+    private final List<RunApp> runApps = new ArrayList<>();
+    private final StatePersister statePersister;
+    private final long drainTimeoutMillis;
+    private HotRedeployer hotRedeployer;
+    private ExecutorService statisticsReporter;
+    private boolean isShutdown = false;
+    private volatile long lastEventTime = System.nanoTime();
+    private long startTime;
+
+    /**
+     * Create the shutdown of a run.
+     *
+     * @param statePersister persister of the state of the apps, null if persistence is not enabled
+     */
+    RunShutdown(StatePersister statePersister) {
+        this.statePersister = statePersister;
+        this.drainTimeoutMillis = TimeUnit.SECONDS.toMillis(LauncherUtils.getIntProperty(
+                Constants.SYSTEM_PROP_RUN_DRAIN_TIMEOUT, Constants.DEFAULT_RUN_DRAIN_TIMEOUT, 0));
+    }
+
+    void setHotRedeployer(HotRedeployer hotRedeployer) {
+        this.hotRedeployer = hotRedeployer;
+    }
+
+    void setStatisticsReporter(ExecutorService statisticsReporter) {
+        this.statisticsReporter = statisticsReporter;
+    }
+
+    /**
+     * Add a siddhi app of the run.
+     *
+     * @param siddhiAppName            name of the siddhi app
+     * @param siddhiAppRuntimeSupplier supplier of the current runtime of the siddhi app
+     * @param inputFeeder              the input feeder of the siddhi app, null if its input is not fed from a file
+     * @param outputStatistics         the output statistics of the siddhi app, null if they are not recorded
+     */
+    void add(String siddhiAppName, Supplier<SiddhiAppRuntime> siddhiAppRuntimeSupplier, InputFeeder inputFeeder,
+             OutputStatistics outputStatistics) {
+        runApps.add(new RunApp(siddhiAppName, siddhiAppRuntimeSupplier, inputFeeder, outputStatistics));
+    }
+
+    /**
+     * Shut the run down when the launcher exits, and when the input is fed if the run is to end with its input.
+     *
+     * @param untilInputEnd whether the run ends once the event input files are fed
+     */
+    void start(boolean untilInputEnd) {
+        startTime = System.nanoTime();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "Siddhi Run Shutdown"));
+        if (!untilInputEnd) {
+            return;
+        }
+        List<InputFeeder> inputFeeders = new ArrayList<>();
+        for (RunApp runApp : runApps) {
+            if (runApp.inputFeeder != null) {
+                inputFeeders.add(runApp.inputFeeder);
+            }
+        }
+        if (inputFeeders.isEmpty()) {
+            log.warn("No event input file is given, hence the run continues until the launcher is stopped");
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            inputFeeders.forEach(InputFeeder::join);
+            shutdown();
+            Runtime.getRuntime().exit(0);
+        }, "Siddhi Run Input End");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the input, drain the events, persist the final state, shut the siddhi apps down and log the statistics of
+     * the run. Only the first call shuts the run down, while a concurrent call waits until it is shut down.
+     */
+    synchronized void shutdown() {
+        if (isShutdown) {
+            return;
+        }
+        isShutdown = true;
+        long shutdownStartTime = System.nanoTime();
+        if (hotRedeployer != null) {
+            hotRedeployer.stop();
+        }
+        lastEventTime = System.nanoTime();
+        for (RunApp runApp : runApps) {
+            SiddhiAppRuntime siddhiAppRuntime = runApp.siddhiAppRuntimeSupplier.get();
+            try {
+                HotRedeployer.pauseSources(siddhiAppRuntime);
+                watchStreams(siddhiAppRuntime);
+            } catch (RuntimeException e) {
+                log.error("Error in pausing the sources of siddhi app " + runApp.siddhiAppName + ": " + e);
+            }
+            if (runApp.inputFeeder != null) {
+                runApp.inputFeeder.stop();
+                runApp.inputFeeder.join();
+            }
+        }
+        try {
+            if (!awaitDrained()) {
+                log.warn("Events of the siddhi apps are still being processed after " + drainTimeoutMillis +
+                        " ms, shutting down without draining them");
+            }
+            if (statePersister != null) {
+                statePersister.stop();
+                if (!statePersister.persistAndWait(drainTimeoutMillis)) {
+                    log.warn("Final state of the siddhi apps is not saved within " + drainTimeoutMillis + " ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while shutting down the siddhi apps");
+        }
+        long drainedTime = System.nanoTime();
+        for (RunApp runApp : runApps) {
+            SiddhiAppRuntime siddhiAppRuntime = runApp.siddhiAppRuntimeSupplier.get();
+            try {
+                siddhiAppRuntime.shutdown();
+            } catch (RuntimeException e) {
+                log.error("Error in shutting down siddhi app " + runApp.siddhiAppName + ": " + e);
+            }
+        }
+        if (statePersister != null) {
+            statePersister.close();
+        }
+        if (statisticsReporter != null) {
+            // The interval reports end with the run, which the summary covers
+            statisticsReporter.shutdownNow();
+        }
+        logStatistics(shutdownStartTime, drainedTime);
+    }
+
+    /**
+     * Add a callback to each stream of a siddhi app runtime to detect when the events are drained. The callbacks
+     * receive the events still queued in the {@code @async} streams as well, as the receivers of a stream are looked
+     * up when its events are delivered.
+     */
+    private void watchStreams(SiddhiAppRuntime siddhiAppRuntime) {
+        for (String streamId : siddhiAppRuntime.getStreamDefinitionMap().keySet()) {
+            siddhiAppRuntime.addCallback(streamId, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    lastEventTime = System.nanoTime();
+                }
+            });
+        }
+    }
+
+    /**
+     * Wait until no stream has received an event for the quiet period.
+     *
+     * @return true if the streams are quiet, false if the drain timeout elapsed first
+     */
+    private boolean awaitDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        while (System.nanoTime() - lastEventTime < TimeUnit.MILLISECONDS.toNanos(DRAIN_QUIET_PERIOD_MILLIS)) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(DRAIN_QUIET_PERIOD_MILLIS / 10);
+        }
+        return true;
+    }
+
+    private void logStatistics(long shutdownStartTime, long drainedTime) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Siddhi run of ").append(runApps.size()).append(" siddhi apps ended after ")
+                .append(TimeUnit.NANOSECONDS.toMillis(drainedTime - startTime)).append(" ms, of which ")
+                .append(TimeUnit.NANOSECONDS.toMillis(drainedTime - shutdownStartTime))
+                .append(" ms were spent stopping the input and draining the events");
+        for (RunApp runApp : runApps) {
+            if (runApp.inputFeeder != null) {
+                builder.append(System.lineSeparator()).append("  Siddhi App: ").append(runApp.siddhiAppName)
+                        .append(", ").append(runApp.inputFeeder.getStatistics().getSummary());
+            }
+            if (runApp.outputStatistics != null) {
+                builder.append(System.lineSeparator()).append("  Siddhi App: ").append(runApp.siddhiAppName)
+                        .append(", ").append(runApp.outputStatistics.getSummary());
+            }
+        }
+        log.info(builder.toString());
+    }
+
+    /**
+     * A siddhi app of the run.
+     */
+    private static final class RunApp {
+
+        private final String siddhiAppName;
+        private final Supplier<SiddhiAppRuntime> siddhiAppRuntimeSupplier;
+        private final InputFeeder inputFeeder;
+        private final OutputStatistics outputStatistics;
+
+        private RunApp(String siddhiAppName, Supplier<SiddhiAppRuntime> siddhiAppRuntimeSupplier,
+                       InputFeeder inputFeeder, OutputStatistics outputStatistics) {
+            this.siddhiAppName = siddhiAppName;
+            this.siddhiAppRuntimeSupplier = siddhiAppRuntimeSupplier;
+            this.inputFeeder = inputFeeder;
+            this.outputStatistics = outputStatistics;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.run;
+
+/**
+ * A siddhi app read from its file, along with the event input file to feed it with.
+ */
+public final class SiddhiAppFile {
+
+    private final String path;
+    private final String name;
+    private final String siddhiApp;
+    private final String inputFilePath;
+
+    /**
+     * Create a siddhi app file.
+     *
+     * @param path          path to the siddhiApp file
+     * @param name          name of the siddhi app
+     * @param siddhiApp     the siddhiApp
+     * @param inputFilePath path to the event input file, or empty if the app is not fed from a file
+     */
+    public SiddhiAppFile(String path, String name, String siddhiApp, String inputFilePath) {
+        this.path = path;
+        this.name = name;
+        this.siddhiApp = siddhiApp;
+        this.inputFilePath = inputFilePath;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSiddhiApp() {
+        return siddhiApp;
+    }
+
+    public String getInputFilePath() {
+        return inputFilePath;
+    }
+
+    public boolean hasInputFile() {
+        return inputFilePath != null && !inputFilePath.isEmpty();
+    }
+}
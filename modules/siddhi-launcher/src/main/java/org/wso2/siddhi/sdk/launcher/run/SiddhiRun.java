@@ -19,7 +19,24 @@ package org.wso2.siddhi.sdk.launcher.run;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.core.SiddhiAppRuntime;
 import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.persistence.StatePersister;
+import org.wso2.siddhi.sdk.launcher.util.Constants;
 import org.wso2.siddhi.sdk.launcher.util.InputFeeder;
+import org.wso2.siddhi.sdk.launcher.util.OutputStatistics;
+import org.wso2.siddhi.sdk.launcher.util.SendTimeLog;
+import org.wso2.siddhi.sdk.launcher.util.SiddhiAppUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Handles the run mode for a siddhi app.
@@ -28,6 +45,8 @@ public class SiddhiRun {
 
     private static final Logger log = Logger.getLogger(SiddhiRun.class);
 
+    private static final int STATS_DISABLED = -1;
+
     // Creating Siddhi Manager
     private static SiddhiManager siddhiManager = new SiddhiManager();
 
@@ -35,23 +54,222 @@ public class SiddhiRun {
 
     }
 
-    public void runSiddhi(String siddhiApp, String inputFile) throws InterruptedException {
+    public void runSiddhi(SiddhiAppFile siddhiAppFile) {
+        run(Collections.singletonList(siddhiAppFile));
+    }
+
+    /**
+     * Run several siddhi apps together on the shared siddhi manager. All apps are created before any of them is
+     * started, so an app which fails to compile stops the whole run, and the input feeders are started once every
+     * app is running. A combined summary of the feeders is logged when all of them have completed.
+     *
+     * @param siddhiAppFiles the siddhi apps to run
+     */
+    public void runSiddhiApps(List<SiddhiAppFile> siddhiAppFiles) {
+        run(siddhiAppFiles);
+    }
 
+    /**
+     * Run siddhi apps until the launcher exits, or until their input is fed in the run until input end mode, and shut
+     * them down gracefully.
+     */
+    private void run(List<SiddhiAppFile> siddhiAppFiles) {
+
+        StatePersister statePersister = StatePersister.isEnabled() ? new StatePersister() : null;
+        if (statePersister != null) {
+            statePersister.configure(siddhiManager);
+        }
+        RunShutdown runShutdown = new RunShutdown(statePersister);
+
+        //Generating runtimes, errors of the apps are thrown to the launcher as this is the only compilation of them
+        Map<SiddhiAppFile, SiddhiAppRuntime> siddhiAppRuntimes = new LinkedHashMap<>();
         try {
-            //Generating runtime
-            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+            for (SiddhiAppFile siddhiAppFile : siddhiAppFiles) {
+                siddhiAppRuntimes.put(siddhiAppFile, siddhiManager.createSiddhiAppRuntime(
+                        siddhiAppFile.getSiddhiApp()));
+            }
+        } catch (RuntimeException e) {
+            siddhiAppRuntimes.values().forEach(SiddhiAppRuntime::shutdown);
+            throw e;
+        }
+
+        Map<SiddhiAppFile, InputFeeder> inputFeeders = new LinkedHashMap<>();
+        HotRedeployer hotRedeployer = null;
+        ScheduledExecutorService reporter = null;
+        try {
+            int statsInterval = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_RUN_STATS_INTERVAL,
+                    STATS_DISABLED, 0);
+            boolean isSingleApp = siddhiAppRuntimes.size() == 1;
+            Map<SiddhiAppFile, OutputStatistics> outputStatisticsMap = new HashMap<>();
+            Map<SiddhiAppFile, SendTimeLog> sendTimeLogs = new HashMap<>();
+            Map<SiddhiAppFile, Consumer<SiddhiAppRuntime>> callbackAttachers = new HashMap<>();
+            if (statsInterval > 0) {
+                reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Siddhi Output Statistics Reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                runShutdown.setStatisticsReporter(reporter);
+            }
+            ScheduledExecutorService statisticsReporter = reporter;
+            siddhiAppRuntimes.forEach((siddhiAppFile, siddhiAppRuntime) -> {
+                OutputStatistics outputStatistics = null;
+                if (statsInterval != STATS_DISABLED) {
+                    SendTimeLog sendTimeLog = new SendTimeLog();
+                    outputStatistics = startOutputStatistics(isSingleApp ? "" :
+                            "Siddhi App: " + siddhiAppFile.getName() + " ", siddhiAppFile.getSiddhiApp(),
+                            sendTimeLog, statisticsReporter, statsInterval);
+                    outputStatisticsMap.put(siddhiAppFile, outputStatistics);
+                    sendTimeLogs.put(siddhiAppFile, sendTimeLog);
+                }
+                // The callbacks are added again to the runtime of a redeployed siddhi app
+                OutputStatistics appOutputStatistics = outputStatistics;
+                Consumer<SiddhiAppRuntime> callbackAttacher = runtime -> {
+                    if (appOutputStatistics != null) {
+                        appOutputStatistics.attach(runtime);
+                    }
+                };
+                callbackAttacher.accept(siddhiAppRuntime);
+                callbackAttachers.put(siddhiAppFile, callbackAttacher);
+            });
 
             //Starting event processing
-            siddhiAppRuntime.start();
+            siddhiAppRuntimes.values().forEach(SiddhiAppRuntime::start);
+            if (!isSingleApp) {
+                log.info("Started " + siddhiAppRuntimes.size() + " siddhi apps");
+            }
+            if (statePersister != null) {
+                // The sources are connected by start, so they are paused while the state is restored, so that events
+                // they receive meanwhile are not processed against empty state or overwritten by the restore
+                for (SiddhiAppRuntime siddhiAppRuntime : siddhiAppRuntimes.values()) {
+                    HotRedeployer.pauseSources(siddhiAppRuntime);
+                    try {
+                        StatePersister.restore(siddhiAppRuntime);
+                    } finally {
+                        HotRedeployer.resumeSources(siddhiAppRuntime);
+                    }
+                }
+            }
 
-            if (!(inputFile == null || inputFile.equalsIgnoreCase(""))) {
-                InputFeeder inputFeeder = new InputFeeder(siddhiAppRuntime, inputFile);
-                //starting input feeder
-                inputFeeder.start();
+            siddhiAppRuntimes.forEach((siddhiAppFile, siddhiAppRuntime) -> {
+                if (siddhiAppFile.hasInputFile()) {
+                    InputFeeder inputFeeder = new InputFeeder(siddhiAppRuntime, siddhiAppFile.getInputFilePath());
+                    inputFeeder.setSendTimeLog(sendTimeLogs.get(siddhiAppFile));
+                    inputFeeders.put(siddhiAppFile, inputFeeder);
+                }
+            });
+            if (Boolean.getBoolean(Constants.SYSTEM_PROP_RUN_WATCH)) {
+                HotRedeployer watcher = new HotRedeployer(siddhiManager);
+                siddhiAppRuntimes.forEach((siddhiAppFile, siddhiAppRuntime) -> watcher.watch(siddhiAppFile,
+                        siddhiAppRuntime, inputFeeders.get(siddhiAppFile), callbackAttachers.get(siddhiAppFile)));
+                watcher.start();
+                hotRedeployer = watcher;
+                runShutdown.setHotRedeployer(hotRedeployer);
+            }
+            for (Map.Entry<SiddhiAppFile, SiddhiAppRuntime> entry : siddhiAppRuntimes.entrySet()) {
+                Supplier<SiddhiAppRuntime> currentRuntime = getCurrentRuntime(entry.getKey(), entry.getValue(),
+                        hotRedeployer);
+                if (statePersister != null) {
+                    statePersister.add(currentRuntime);
+                }
+                runShutdown.add(entry.getKey().getName(), currentRuntime, inputFeeders.get(entry.getKey()),
+                        outputStatisticsMap.get(entry.getKey()));
+            }
+            if (statePersister != null) {
+                statePersister.start();
             }
+
+            if (!inputFeeders.isEmpty()) {
+                long startTime = System.nanoTime();
+                //starting input feeders
+                inputFeeders.values().forEach(InputFeeder::start);
+                if (!isSingleApp) {
+                    Thread summary = new Thread(() -> logRunSummary(inputFeeders, startTime), "Siddhi Run Summary");
+                    summary.setDaemon(true);
+                    summary.start();
+                }
+            }
+            // Started after the input feeders, so that the run until input end mode never sees a feeder not started
+            runShutdown.start(Boolean.getBoolean(Constants.SYSTEM_PROP_RUN_UNTIL_INPUT_END));
         } catch (Throwable e) {
             log.error("Internal Siddhi Error Occurred: " + e);
+            abort(siddhiAppRuntimes, inputFeeders, hotRedeployer, reporter, statePersister);
+        }
+    }
+
+    /**
+     * Stop a run which failed to start. The shutdown hook of a run is only installed once it is started, hence
+     * nothing else would stop the parts of the run which are already running.
+     */
+    private static void abort(Map<SiddhiAppFile, SiddhiAppRuntime> siddhiAppRuntimes,
+                              Map<SiddhiAppFile, InputFeeder> inputFeeders, HotRedeployer hotRedeployer,
+                              ScheduledExecutorService statisticsReporter, StatePersister statePersister) {
+        if (hotRedeployer != null) {
+            hotRedeployer.stop();
+        }
+        inputFeeders.values().forEach(InputFeeder::stop);
+        if (statePersister != null) {
+            statePersister.close();
+        }
+        if (statisticsReporter != null) {
+            statisticsReporter.shutdownNow();
+        }
+        siddhiAppRuntimes.forEach((siddhiAppFile, siddhiAppRuntime) -> {
+            SiddhiAppRuntime currentRuntime = getCurrentRuntime(siddhiAppFile, siddhiAppRuntime, hotRedeployer).get();
+            try {
+                currentRuntime.shutdown();
+            } catch (RuntimeException e) {
+                log.error("Error in shutting down siddhi app " + siddhiAppFile.getName() + ": " + e);
+            }
+        });
+    }
+
+    /**
+     * Get a supplier of the runtime a siddhi app currently runs on, which changes when the app is redeployed.
+     */
+    private static Supplier<SiddhiAppRuntime> getCurrentRuntime(SiddhiAppFile siddhiAppFile,
+                                                                SiddhiAppRuntime siddhiAppRuntime,
+                                                                HotRedeployer hotRedeployer) {
+        if (hotRedeployer == null) {
+            return () -> siddhiAppRuntime;
+        }
+        return () -> hotRedeployer.getSiddhiAppRuntime(siddhiAppFile.getPath());
+    }
+
+    /**
+     * Wait for the input feeders to complete and log the events they have sent, in total and per siddhi app.
+     */
+    private void logRunSummary(Map<SiddhiAppFile, InputFeeder> inputFeeders, long startTime) {
+        inputFeeders.values().forEach(InputFeeder::join);
+        long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+        long totalEventCount = 0;
+        for (InputFeeder inputFeeder : inputFeeders.values()) {
+            totalEventCount += inputFeeder.getStatistics().getTotalEventCount();
         }
+        long rate = (durationMillis == 0) ? totalEventCount : (totalEventCount * 1000) / durationMillis;
+        StringBuilder builder = new StringBuilder();
+        builder.append("Input feeders of ").append(inputFeeders.size()).append(" siddhi apps completed. Sent ")
+                .append(totalEventCount).append(" events in ").append(durationMillis).append(" ms (")
+                .append(rate).append(" events/sec)");
+        inputFeeders.forEach((siddhiAppFile, inputFeeder) -> builder.append(System.lineSeparator())
+                .append("  Siddhi App: ").append(siddhiAppFile.getName()).append(", ")
+                .append(inputFeeder.getStatistics().getSummary()));
+        log.info(builder.toString());
+    }
 
+    /**
+     * Record the output events of the siddhi app and report them on the reporter every given number of seconds,
+     * prefixed with the given label. The summary is logged when the run is shut down.
+     */
+    private OutputStatistics startOutputStatistics(String label, String siddhiApp, SendTimeLog sendTimeLog,
+                                                   ScheduledExecutorService reporter, int statsInterval) {
+        OutputStatistics outputStatistics = new OutputStatistics(SiddhiAppUtils.getQueryOutputStreamIds(siddhiApp),
+                sendTimeLog);
+        outputStatistics.start();
+        if (statsInterval > 0) {
+            reporter.scheduleAtFixedRate(() -> log.info(label + outputStatistics.getIntervalReport()), statsInterval,
+                    statsInterval, TimeUnit.SECONDS);
+        }
+        return outputStatistics;
     }
 }
@@ -25,4 +25,69 @@ public class Constants {
 
     // Name of the system property to hold the debug port
     public static final String SYSTEM_PROP_SIDDHI_DEBUG = "siddhi.debug";
+
+    // Names of the system properties to hold the write buffer water marks of the debug client channel in bytes
+    public static final String SYSTEM_PROP_DEBUG_WRITE_BUFFER_LOW = "siddhi.debug.write.buffer.low";
+    public static final String SYSTEM_PROP_DEBUG_WRITE_BUFFER_HIGH = "siddhi.debug.write.buffer.high";
+
+    public static final int DEFAULT_DEBUG_WRITE_BUFFER_LOW = 32 * 1024;
+    public static final int DEFAULT_DEBUG_WRITE_BUFFER_HIGH = 64 * 1024;
+
+    // Name of the system property to hold the number of log point records queued for the debug client
+    public static final String SYSTEM_PROP_DEBUG_QUEUE_SIZE = "siddhi.debug.queue.size";
+
+    public static final int DEFAULT_DEBUG_QUEUE_SIZE = 1024;
+
+    // Name of the system property to hold the policy applied when the debug client does not keep up with the records
+    public static final String SYSTEM_PROP_DEBUG_OVERFLOW_POLICY = "siddhi.debug.overflow.policy";
+
+    // Name of the system property to hold the number of consecutive events of a stream sent to Siddhi together
+    public static final String SYSTEM_PROP_FEEDER_BATCH_SIZE = "siddhi.feeder.batch.size";
+
+    public static final int DEFAULT_FEEDER_BATCH_SIZE = 100;
+
+    // Name of the system property to hold the sampling rate of the events logged by the input feeder
+    public static final String SYSTEM_PROP_FEEDER_TRACE_SAMPLE_RATE = "siddhi.feeder.trace.sample";
+
+    // Name of the system property to hold the number of threads sending the streams of the event input file
+    public static final String SYSTEM_PROP_FEEDER_THREADS = "siddhi.feeder.threads";
+
+    // Name of the system property to hold the speed at which the event timestamps of the input are replayed
+    public static final String SYSTEM_PROP_FEEDER_REPLAY_SPEED = "siddhi.feeder.replay.speed";
+
+    // Name of the system property to hold the interval in seconds between the output statistics reports of a run
+    public static final String SYSTEM_PROP_RUN_STATS_INTERVAL = "siddhi.run.stats.interval";
+
+    // Name of the system property to hold the directory the state of the siddhi apps of a run is persisted to
+    public static final String SYSTEM_PROP_RUN_PERSISTENCE_DIR = "siddhi.run.persistence.dir";
+
+    // Name of the system property to hold the interval in seconds between the state persists of a run
+    public static final String SYSTEM_PROP_RUN_PERSISTENCE_INTERVAL = "siddhi.run.persistence.interval";
+
+    public static final int DEFAULT_RUN_PERSISTENCE_INTERVAL = 60;
+
+    // Name of the system property to hold the persistence store of a run, which is one of the following stores
+    public static final String SYSTEM_PROP_RUN_PERSISTENCE_STORE = "siddhi.run.persistence.store";
+
+    public static final String PERSISTENCE_STORE_FILE = "file";
+    public static final String PERSISTENCE_STORE_SEGMENT = "segment";
+
+    // Name of the system property to hold the size in megabytes of the segment files of the segment store
+    public static final String SYSTEM_PROP_RUN_PERSISTENCE_SEGMENT_SIZE = "siddhi.run.persistence.segment.size";
+
+    public static final int DEFAULT_RUN_PERSISTENCE_SEGMENT_SIZE = 16;
+
+    // Name of the system property to end a run once its event input files are fed and processed
+    public static final String SYSTEM_PROP_RUN_UNTIL_INPUT_END = "siddhi.run.until.input.end";
+
+    // Name of the system property to hold the maximum time in seconds to drain the events when a run is shut down
+    public static final String SYSTEM_PROP_RUN_DRAIN_TIMEOUT = "siddhi.run.drain.timeout";
+
+    public static final int DEFAULT_RUN_DRAIN_TIMEOUT = 30;
+
+    // Name of the system property to enable redeploying the siddhi apps of a run when their files are changed
+    public static final String SYSTEM_PROP_RUN_WATCH = "siddhi.run.watch";
+
+    // Local port the launcher daemon listens on by default
+    public static final int DEFAULT_DAEMON_PORT = 9797;
 }
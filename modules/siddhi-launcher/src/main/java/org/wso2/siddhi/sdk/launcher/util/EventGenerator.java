@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.siddhi.sdk.launcher.util;
+
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates event data for a stream. Values are taken from the templates in round robin order, and the attributes
+ * without a template value are filled with random values of the attribute type.
+ * <p>
+ * An instance is not thread safe.
+ */
+public class EventGenerator {
+
+    /**
+     * Number of distinct values generated for a string attribute.
+     */
+    private static final int STRING_CARDINALITY = 1000;
+
+    /**
+     * Upper bound of the generated numeric values.
+     */
+    private static final int NUMERIC_BOUND = 1000;
+
+    private final Attribute.Type[] attributeTypes;
+    private final String[][] stringPools;
+    private final List<Object[]> templates;
+    private final SplittableRandom random = new SplittableRandom();
+    private int nextTemplate = 0;
+
+    public EventGenerator(StreamDefinition streamDefinition, List<Object[]> templates) {
+        List<Attribute> attributeList = streamDefinition.getAttributeList();
+        this.attributeTypes = new Attribute.Type[attributeList.size()];
+        this.stringPools = new String[attributeList.size()][];
+        for (int i = 0; i < attributeTypes.length; i++) {
+            Attribute attribute = attributeList.get(i);
+            attributeTypes[i] = attribute.getType();
+            if (attribute.getType() == Attribute.Type.STRING) {
+                // Strings are created up front so that generating an event allocates only the event data
+                stringPools[i] = new String[STRING_CARDINALITY];
+                for (int j = 0; j < STRING_CARDINALITY; j++) {
+                    stringPools[i][j] = attribute.getName() + "-" + j;
+                }
+            }
+        }
+        this.templates = templates;
+    }
+
+    /**
+     * Generate the data of an event.
+     *
+     * @return the event data
+     */
+    public Object[] next() {
+        Object[] template = null;
+        if (!templates.isEmpty()) {
+            template = templates.get(nextTemplate);
+            nextTemplate = (nextTemplate + 1) % templates.size();
+        }
+        Object[] data = new Object[attributeTypes.length];
+        for (int i = 0; i < data.length; i++) {
+            if (template != null && template[i] != null) {
+                data[i] = template[i];
+            } else {
+                data[i] = randomValue(i);
+            }
+        }
+        return data;
+    }
+
+    private Object randomValue(int index) {
+        switch (attributeTypes[index]) {
+            case STRING:
+                return stringPools[index][random.nextInt(STRING_CARDINALITY)];
+            case INT:
+                return random.nextInt(NUMERIC_BOUND);
+            case LONG:
+                return random.nextLong(NUMERIC_BOUND);
+            case FLOAT:
+                return (float) (random.nextDouble() * NUMERIC_BOUND);
+            case DOUBLE:
+                return random.nextDouble() * NUMERIC_BOUND;
+            case BOOL:
+                return random.nextBoolean();
+            default:
+                return random.nextInt(NUMERIC_BOUND);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.siddhi.sdk.launcher.util;
+
+import com.google.gson.Gson;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.sdk.launcher.exception.EventParseException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser for the lines of the event input file, which are in the {@code <stream name>=<data in json array format>}
+ * format, or in the {@code <stream name>@<timestamp>=<data in json array format>} format when the event carries its
+ * timestamp in epoch milliseconds. The JSON array is decoded straight into the attribute types declared in the stream
+ * definition, so the values are sent to the Siddhi runtime without any further conversion.
+ * <p>
+ * An instance keeps its buffers between lines and is not thread safe.
+ */
+public class EventLineParser {
+
+    /**
+     * Delimiter separating stream name and the input data in the input.
+     */
+    private static final char INPUT_DELIMITER = '=';
+
+    /**
+     * Delimiter separating stream name and the event timestamp in the input.
+     */
+    private static final char TIMESTAMP_DELIMITER = '@';
+
+    /**
+     * Timestamp of the lines which do not specify one.
+     */
+    public static final long NO_TIMESTAMP = -1;
+
+    /**
+     * Maximum number of digits that can be accumulated into a long without an overflow check.
+     */
+    private static final int MAX_SAFE_LONG_DIGITS = 18;
+
+    private final Map<String, StreamDefinition> streamDefinitionMap;
+    private final Map<String, Attribute.Type[]> attributeTypesMap = new HashMap<>();
+    private final StringBuilder valueBuffer = new StringBuilder();
+    private Gson gson;
+
+    private String streamName;
+    private long timestamp;
+    private Attribute.Type[] attributeTypes;
+    private String line;
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+
+    public EventLineParser(Map<String, StreamDefinition> streamDefinitionMap) {
+        this.streamDefinitionMap = streamDefinitionMap;
+    }
+
+    /**
+     * Parse a line of the event input file.
+     *
+     * @param line the line in {@code <stream name>[@<timestamp>]=<data in json array format>} format
+     * @return the event data, typed according to the definition of the stream
+     * @throws EventParseException if the line is malformed or does not match the stream definition
+     */
+    public Object[] parse(String line) {
+        int delimiterIndex = line.indexOf(INPUT_DELIMITER);
+        if (delimiterIndex <= 0) {
+            throw new EventParseException("Invalid event input, expected <stream name>=<data> but found: " + line);
+        }
+        int nameEnd = delimiterIndex;
+        int timestampIndex = line.lastIndexOf(TIMESTAMP_DELIMITER, delimiterIndex);
+        if (timestampIndex > 0) {
+            nameEnd = timestampIndex;
+            timestamp = parseTimestamp(line, timestampIndex + 1, delimiterIndex);
+        } else {
+            timestamp = NO_TIMESTAMP;
+        }
+        while (nameEnd > 0 && Character.isWhitespace(line.charAt(nameEnd - 1))) {
+            nameEnd--;
+        }
+        resolveStream(line, nameEnd);
+        this.line = line;
+        this.position = delimiterIndex + 1;
+
+        Object[] data = new Object[attributeTypes.length];
+        skipWhitespace();
+        expect('[');
+        skipWhitespace();
+        int index = 0;
+        if (peek() == ']') {
+            position++;
+        } else {
+            while (true) {
+                if (index >= data.length) {
+                    throw error("more values than the " + data.length + " attributes of the stream");
+                }
+                data[index] = parseValue(attributeTypes[index]);
+                index++;
+                skipWhitespace();
+                char c = next();
+                if (c == ']') {
+                    break;
+                } else if (c != ',') {
+                    throw error("expected ',' or ']' but found '" + c + "'");
+                }
+                skipWhitespace();
+            }
+        }
+        if (index != data.length) {
+            throw error("found " + index + " values for the " + data.length + " attributes of the stream");
+        }
+        skipWhitespace();
+        if (position != line.length()) {
+            throw error("unexpected content after the event data");
+        }
+        return data;
+    }
+
+    /**
+     * Get the name of the stream of the last parsed line.
+     *
+     * @return the stream name
+     */
+    public String getStreamName() {
+        return streamName;
+    }
+
+    /**
+     * Get the timestamp of the last parsed line.
+     *
+     * @return the timestamp in epoch milliseconds, or {@link #NO_TIMESTAMP} if the line does not specify one
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    private static long parseTimestamp(String line, int start, int end) {
+        String value = line.substring(start, end).trim();
+        try {
+            long timestamp = Long.parseLong(value);
+            if (timestamp >= 0) {
+                return timestamp;
+            }
+        } catch (NumberFormatException e) {
+            // the exception below is thrown for both invalid formats and negative values
+        }
+        throw new EventParseException("Invalid event timestamp '" + value + "': " + line);
+    }
+
+    private void resolveStream(String line, int nameEnd) {
+        if (streamName != null && streamName.length() == nameEnd && line.startsWith(streamName)) {
+            return;
+        }
+        for (Map.Entry<String, StreamDefinition> entry : streamDefinitionMap.entrySet()) {
+            String name = entry.getKey();
+            if (name.length() == nameEnd && line.startsWith(name)) {
+                streamName = name;
+                attributeTypes = attributeTypesMap.computeIfAbsent(name, key -> toAttributeTypes(entry.getValue()));
+                return;
+            }
+        }
+        throw new EventParseException("Stream '" + line.substring(0, nameEnd) + "' is not defined in the Siddhi app");
+    }
+
+    private static Attribute.Type[] toAttributeTypes(StreamDefinition streamDefinition) {
+        List<Attribute> attributeList = streamDefinition.getAttributeList();
+        Attribute.Type[] types = new Attribute.Type[attributeList.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = attributeList.get(i).getType();
+        }
+        return types;
+    }
+
+    private Object parseValue(Attribute.Type type) {
+        char c = peek();
+        if (c == 'n' && matchLiteral("null")) {
+            return null;
+        }
+        boolean quoted = (c == '"' || c == '\'');
+        switch (type) {
+            case STRING:
+                return quoted ? parseString() : parseBareToken();
+            case INT:
+                return parseInt(quoted);
+            case LONG:
+                return parseLong(quoted);
+            case FLOAT:
+                return (float) parseDouble(quoted);
+            case DOUBLE:
+                return parseDouble(quoted);
+            case BOOL:
+                return parseBoolean(quoted);
+            default:
+                return parseObject(quoted);
+        }
+    }
+
+    private int parseInt(boolean quoted) {
+        long value = parseLong(quoted);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("value " + value + " is out of the range of an int");
+        }
+        return (int) value;
+    }
+
+    private long parseLong(boolean quoted) {
+        if (quoted) {
+            String value = parseString().trim();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return toLong(parseDoubleValue(value), value);
+            }
+        }
+        boolean integral = scanNumber();
+        int length = tokenEnd - tokenStart;
+        if (!integral || length > MAX_SAFE_LONG_DIGITS) {
+            String value = line.substring(tokenStart, tokenEnd);
+            if (!integral) {
+                return toLong(parseDoubleValue(value), value);
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw error("invalid number '" + value + "'");
+            }
+        }
+        int index = tokenStart;
+        boolean negative = false;
+        char first = line.charAt(index);
+        if (first == '-' || first == '+') {
+            negative = (first == '-');
+            index++;
+        }
+        if (index == tokenEnd) {
+            throw error("invalid number");
+        }
+        long value = 0;
+        for (; index < tokenEnd; index++) {
+            char c = line.charAt(index);
+            if (c < '0' || c > '9') {
+                throw error("invalid number '" + line.substring(tokenStart, tokenEnd) + "'");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Truncate a decimal value to a long, as a cast would, but reject values a long can not hold.
+     */
+    private long toLong(double value, String text) {
+        // Long.MAX_VALUE is rounded up to 2^63 as a double, hence the upper bound is exclusive
+        if (Double.isNaN(value) || value < Long.MIN_VALUE || value >= Long.MAX_VALUE) {
+            throw error("value '" + text + "' is out of the range of a long");
+        }
+        return (long) value;
+    }
+
+    private double parseDouble(boolean quoted) {
+        if (quoted) {
+            return parseDoubleValue(parseString().trim());
+        }
+        scanNumber();
+        return parseDoubleValue(line.substring(tokenStart, tokenEnd));
+    }
+
+    private double parseDoubleValue(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw error("invalid number '" + value + "'");
+        }
+    }
+
+    private boolean parseBoolean(boolean quoted) {
+        if (quoted) {
+            String value = parseString().trim();
+            if ("true".equals(value)) {
+                return true;
+            } else if ("false".equals(value)) {
+                return false;
+            }
+            throw error("expected a boolean value but found '" + value + "'");
+        }
+        if (matchLiteral("true")) {
+            return true;
+        } else if (matchLiteral("false")) {
+            return false;
+        }
+        throw error("expected a boolean value");
+    }
+
+    private Object parseObject(boolean quoted) {
+        if (quoted) {
+            return parseString();
+        }
+        char c = peek();
+        if (c == '[' || c == '{') {
+            // Nested structures are rare in the input files, hence they are delegated to Gson.
+            if (gson == null) {
+                gson = new Gson();
+            }
+            return gson.fromJson(line.substring(position, skipStructure()), Object.class);
+        } else if (matchLiteral("true")) {
+            return Boolean.TRUE;
+        } else if (matchLiteral("false")) {
+            return Boolean.FALSE;
+        } else if (c == '-' || c == '+' || (c >= '0' && c <= '9')) {
+            return parseDouble(false);
+        }
+        return parseBareToken();
+    }
+
+    private String parseString() {
+        char quote = next();
+        int start = position;
+        // Fast path for the common case of strings without escape sequences.
+        while (position < line.length()) {
+            char c = line.charAt(position);
+            if (c == quote) {
+                position++;
+                return line.substring(start, position - 1);
+            } else if (c == '\\') {
+                break;
+            }
+            position++;
+        }
+        valueBuffer.setLength(0);
+        valueBuffer.append(line, start, position);
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if (c == quote) {
+                return valueBuffer.toString();
+            } else if (c == '\\') {
+                valueBuffer.append(parseEscape());
+            } else {
+                valueBuffer.append(c);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private char parseEscape() {
+        char c = next();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (position + 4 > line.length()) {
+                    throw error("invalid unicode escape sequence");
+                }
+                int codePoint = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(line.charAt(position++), 16);
+                    if (digit < 0) {
+                        throw error("invalid unicode escape sequence");
+                    }
+                    codePoint = (codePoint << 4) | digit;
+                }
+                return (char) codePoint;
+            default:
+                return c;
+        }
+    }
+
+    private String parseBareToken() {
+        int start = position;
+        while (position < line.length() && line.charAt(position) != ',' && line.charAt(position) != ']') {
+            position++;
+        }
+        int end = position;
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        if (end == start) {
+            throw error("missing value");
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * Scan a number token starting at the current position.
+     *
+     * @return true if the token is an integral number
+     */
+    private boolean scanNumber() {
+        tokenStart = position;
+        boolean integral = true;
+        while (position < line.length()) {
+            char c = line.charAt(position);
+            if (c >= '0' && c <= '9') {
+                position++;
+            } else if (c == '-' || c == '+') {
+                position++;
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+                position++;
+            } else {
+                break;
+            }
+        }
+        tokenEnd = position;
+        if (tokenStart == tokenEnd) {
+            throw error("expected a number");
+        }
+        return integral;
+    }
+
+    private int skipStructure() {
+        int depth = 0;
+        char quote = 0;
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if (quote != 0) {
+                if (c == '\\') {
+                    position++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+                if (depth == 0) {
+                    return position;
+                }
+            }
+        }
+        throw error("unterminated structure");
+    }
+
+    /**
+     * Match a literal which is a whole value, i.e. which is followed by the end of the value, so that a bare string
+     * such as {@code nullable} is not read as a literal.
+     */
+    private boolean matchLiteral(String literal) {
+        int end = position + literal.length();
+        if (!line.startsWith(literal, position)) {
+            return false;
+        }
+        if (end < line.length()) {
+            char c = line.charAt(end);
+            if (c != ',' && c != ']' && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        position = end;
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= line.length()) {
+            throw error("unexpected end of line");
+        }
+        return line.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char expected) {
+        char c = next();
+        if (c != expected) {
+            throw error("expected '" + expected + "' but found '" + c + "'");
+        }
+    }
+
+    private EventParseException error(String reason) {
+        return new EventParseException("Invalid event input for stream '" + streamName + "' at position " +
+                position + ", " + reason + ": " + line);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.siddhi.sdk.launcher.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of events sent by an input feeder per stream, along with the duration of the feed.
+ */
+public class FeederStatistics {
+
+    private final Map<String, LongAdder> streamEventCounts = new ConcurrentHashMap<>();
+    private volatile long startTime;
+    private volatile long endTime;
+
+    /**
+     * Mark the start of the feed.
+     */
+    public void start() {
+        startTime = System.nanoTime();
+        endTime = 0;
+    }
+
+    /**
+     * Mark the end of the feed.
+     */
+    public void end() {
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * Record events sent to a stream.
+     *
+     * @param streamName name of the stream
+     * @param count      number of events sent
+     */
+    public void record(String streamName, int count) {
+        streamEventCounts.computeIfAbsent(streamName, key -> new LongAdder()).add(count);
+    }
+
+    /**
+     * Get the number of events sent per stream.
+     *
+     * @return event counts keyed by stream name, sorted by stream name
+     */
+    public Map<String, Long> getStreamEventCounts() {
+        Map<String, Long> counts = new ConcurrentSkipListMap<>();
+        streamEventCounts.forEach((streamName, count) -> counts.put(streamName, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Get the total number of events sent.
+     *
+     * @return the event count
+     */
+    public long getTotalEventCount() {
+        long total = 0;
+        for (LongAdder count : streamEventCounts.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Get the duration of the feed so far, or of the whole feed once it has ended.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+        if (startTime == 0) {
+            return 0;
+        }
+        long end = (endTime == 0) ? System.nanoTime() : endTime;
+        return (end - startTime) / 1_000_000;
+    }
+
+    /**
+     * Get a human readable summary of the feed.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        long durationMillis = getDurationMillis();
+        StringBuilder builder = new StringBuilder();
+        builder.append("Sent ").append(getTotalEventCount()).append(" events in ").append(durationMillis)
+                .append(" ms (").append(rate(getTotalEventCount(), durationMillis)).append(" events/sec)");
+        for (Map.Entry<String, Long> entry : getStreamEventCounts().entrySet()) {
+            builder.append(System.lineSeparator()).append("    Stream: ").append(entry.getKey())
+                    .append(", Events: ").append(entry.getValue())
+                    .append(", Rate: ").append(rate(entry.getValue(), durationMillis)).append(" events/sec");
+        }
+        return builder.toString();
+    }
+
+    private static long rate(long count, long durationMillis) {
+        return (durationMillis == 0) ? count : (count * 1000) / durationMillis;
+    }
+}
@@ -16,11 +16,22 @@
 package org.wso2.siddhi.sdk.launcher.util;
 
 
-import com.google.gson.Gson;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.sdk.launcher.LauncherUtils;
+import org.wso2.siddhi.sdk.launcher.exception.EventParseException;
 
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -37,54 +48,341 @@ public class InputFeeder implements Runnable {
     private static final String DELAY = "delay";
 
     /**
-     * Delimiter separating stream name and the input data in the input.
+     * Size of the character buffer used to read the input file incrementally.
      */
-    private static final String INPUT_DELIMITER = "=";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
 
-    private final SiddhiAppRuntime siddhiAppRuntime;
-    private String input;
+    private volatile SiddhiAppRuntime siddhiAppRuntime;
+    private String inputFilePath;
     private volatile AtomicBoolean running = new AtomicBoolean(false);
     private Thread thread;
+    private final Object pauseLock = new Object();
+    private boolean paused = false;
 
-    public InputFeeder(SiddhiAppRuntime siddhiAppRuntime, String input) {
+    /**
+     * Whether the feeder thread has sent the events read so far and is waiting to be resumed.
+     */
+    private boolean parked = false;
+    private boolean started = false;
+    private boolean completed = false;
+
+    /**
+     * Whether the feeder thread is waiting for a delay or for the replay time of an event, in which case it is
+     * interrupted to stop or to pause it.
+     */
+    private boolean waiting = false;
+
+    /**
+     * Input handlers of the streams, looked up once per stream.
+     */
+    private final Map<String, InputHandler> inputHandlerMap = new HashMap<>();
+
+    /**
+     * Consecutive events of the same stream which are yet to be sent to Siddhi.
+     */
+    private final int batchSize;
+    private Event[] batch;
+    private int batchCount = 0;
+    private String batchStreamName;
+
+    /**
+     * Every n-th event is logged when tracing is enabled, 0 disables tracing.
+     */
+    private final int traceSampleRate;
+    private long traceCounter = 0;
+
+    private final FeederStatistics statistics = new FeederStatistics();
+
+    /**
+     * Dispatcher used to send the streams concurrently, null when the input is sent from the feeder thread.
+     */
+    private final ParallelEventDispatcher dispatcher;
+
+    private final ReplayPacer pacer;
+
+    /**
+     * Parser of the input lines, for the stream definitions of the runtime it is created for.
+     */
+    private EventLineParser parser;
+    private SiddhiAppRuntime parserRuntime;
+
+    /**
+     * Whether the siddhi app is in playback mode, in which case its timestamp generator stamps the events read
+     * without a timestamp.
+     */
+    private boolean playback;
+
+    /**
+     * Send times of the batches, null when they are not recorded.
+     */
+    private volatile SendTimeLog sendTimeLog;
+
+    public InputFeeder(SiddhiAppRuntime siddhiAppRuntime, String inputFilePath) {
         thread = new Thread(this);
         this.siddhiAppRuntime = siddhiAppRuntime;
-        this.input = input;
+        this.inputFilePath = inputFilePath;
+        this.batchSize = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_FEEDER_BATCH_SIZE,
+                Constants.DEFAULT_FEEDER_BATCH_SIZE, 1);
+        this.batch = new Event[batchSize];
+        this.traceSampleRate = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_FEEDER_TRACE_SAMPLE_RATE, 0, 0);
+        int workerCount = LauncherUtils.getIntProperty(Constants.SYSTEM_PROP_FEEDER_THREADS, 1, 1);
+        this.dispatcher = (workerCount > 1) ? new ParallelEventDispatcher(workerCount, statistics) : null;
+        this.pacer = new ReplayPacer(LauncherUtils.getDoubleProperty(Constants.SYSTEM_PROP_FEEDER_REPLAY_SPEED, 0));
     }
 
     @Override
     public void run() {
-        // Scanner to read the user input line by line
-        Scanner scanner = new Scanner(input);
-        Gson gson = new Gson();
-        while (scanner.hasNext()) {
+        statistics.start();
+        if (dispatcher != null) {
+            dispatcher.start();
+        }
+        // The input file is streamed line by line so that the heap usage does not depend on the file size
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(inputFilePath)), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            feed(reader);
+        } catch (IOException e) {
+            log.error("Error in reading the event input file " + inputFilePath + ":" + e);
+        } finally {
+            if (dispatcher != null) {
+                if (running.get()) {
+                    dispatcher.complete();
+                } else {
+                    dispatcher.stop();
+                }
+            }
+            statistics.end();
+            log.info("Input feeder completed. " + statistics.getSummary());
+            if (pacer.isEventTimePaced()) {
+                log.info("Input feeder was at most " + pacer.getMaxLagMillis() + " ms behind the replay schedule");
+            }
+            synchronized (pauseLock) {
+                completed = true;
+                pauseLock.notifyAll();
+            }
+        }
+    }
+
+    private void feed(BufferedReader reader) throws IOException {
+        updateParser();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            awaitResume();
             if (!running.get()) {
                 break;
             }
-            String line = scanner.nextLine().trim();
+            updateParser();
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
             if (line.startsWith(DELAY)) {
+                // Events read before the delay should reach Siddhi before the feeder starts waiting
+                flush();
+                awaitDispatcher();
                 // The delay(<time in milliseconds>) is used to delay the input
                 line = line.substring(6, line.length() - 1);
-                try {
-                    Thread.sleep(Integer.parseInt(line));
-                } catch (InterruptedException e) {
-                    log.error("Error in waiting for " + line + " milliseconds" + ":" + e);
+                if (!awaitDeadline(pacer.getDelayDeadline(Long.parseLong(line.trim())))) {
+                    break;
                 }
             } else {
-                // The inout format is: <stream name>=<data in json object[] format>
-                String[] components = line.split(INPUT_DELIMITER);
-                String streamName = components[0];
-                String event = components[1];
-                Object[] data = gson.fromJson(event, Object[].class);
-                log.info("@Send: Stream: " + streamName + ", Event: " + event);
+                // The input format is: <stream name>[@<timestamp>]=<data in json object[] format>
+                Object[] data;
                 try {
-                    siddhiAppRuntime.getInputHandler(streamName).send(data);
-                } catch (InterruptedException e) {
-                    log.error("Error in sending event " + event + " to Siddhi" + ":" + e);
+                    data = parser.parse(line);
+                } catch (EventParseException e) {
+                    log.error(e.getMessage());
+                    continue;
+                }
+                String streamName = parser.getStreamName();
+                if (traceSampleRate > 0 && ++traceCounter % traceSampleRate == 0) {
+                    log.info("@Send: Stream: " + streamName + ", Event: " + Arrays.toString(data));
+                }
+                long timestamp = parser.getTimestamp();
+                long deadline = pacer.getDeadline(timestamp);
+                if (pacer.isAhead(deadline)) {
+                    // Events read so far are due before this one
+                    flush();
+                }
+                if (!awaitDeadline(pacer.getWaitDeadline(deadline))) {
+                    break;
+                }
+                if (updateParser()) {
+                    // The siddhi app is redeployed while the feeder was paused in the wait, hence the line is parsed
+                    // again for the stream definitions of the changed app
+                    try {
+                        data = parser.parse(line);
+                    } catch (EventParseException e) {
+                        log.error(e.getMessage());
+                        continue;
+                    }
+                    streamName = parser.getStreamName();
+                }
+                if (timestamp != EventLineParser.NO_TIMESTAMP) {
+                    addToBatch(streamName, data, timestamp);
+                } else if (playback) {
+                    sendUnstamped(streamName, data);
+                } else {
+                    // The timestamp generator of an app which is not in playback mode reads the wall clock as well
+                    addToBatch(streamName, data, System.currentTimeMillis());
                 }
             }
         }
-        scanner.close();
+        if (running.get()) {
+            flush();
+        }
+    }
+
+    /**
+     * Create the parser of the input lines for the current siddhi app runtime, unless it exists. The siddhi app may
+     * be redeployed while the feeder is paused, hence its stream definitions may have changed.
+     *
+     * @return true if the parser is created, false if the parser of the current runtime is kept
+     */
+    private boolean updateParser() {
+        SiddhiAppRuntime currentRuntime = siddhiAppRuntime;
+        if (currentRuntime == parserRuntime) {
+            return false;
+        }
+        parserRuntime = currentRuntime;
+        parser = new EventLineParser(parserRuntime.getStreamDefinitionMap());
+        playback = SiddhiAppUtils.isPlayback(parserRuntime.getSiddhiApp());
+        return true;
+    }
+
+    /**
+     * Add an event to the current batch. The batch is sent when it is full or when an event of another stream
+     * is added, so that the order of the input is preserved.
+     *
+     * @param streamName name of the stream the event belongs to
+     * @param data       data of the event
+     * @param timestamp  timestamp of the event
+     */
+    private void addToBatch(String streamName, Object[] data, long timestamp) {
+        if (batchCount > 0 && !streamName.equals(batchStreamName)) {
+            flush();
+        }
+        batchStreamName = streamName;
+        batch[batchCount++] = new Event(timestamp, data);
+        if (batchCount == batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the events of the current batch to Siddhi.
+     */
+    private void flush() {
+        if (batchCount == 0) {
+            return;
+        }
+        try {
+            InputHandler inputHandler = inputHandlerMap.computeIfAbsent(batchStreamName,
+                    siddhiAppRuntime::getInputHandler);
+            if (sendTimeLog != null) {
+                long sendTime = System.currentTimeMillis();
+                for (int i = 0; i < batchCount; i++) {
+                    sendTimeLog.record(batch[i].getTimestamp(), sendTime);
+                }
+            }
+            if (dispatcher != null) {
+                dispatcher.dispatch(inputHandler, batchStreamName, Arrays.copyOf(batch, batchCount));
+            } else {
+                // Siddhi copies the events before send returns, hence a full batch array can be reused
+                inputHandler.send((batchCount == batchSize) ? batch : Arrays.copyOf(batch, batchCount));
+                statistics.record(batchStreamName, batchCount);
+            }
+        } catch (InterruptedException e) {
+            log.error("Error in sending " + batchCount + " events of stream " + batchStreamName + " to Siddhi" +
+                    ":" + e);
+        } finally {
+            Arrays.fill(batch, 0, batchCount, null);
+            batchCount = 0;
+        }
+    }
+
+    /**
+     * Wait until a deadline, unless the feeder is stopped meanwhile. A feeder which is paused during the wait is
+     * parked right away, and waits for the rest of it once resumed.
+     *
+     * @param deadlineNanos the deadline in {@link System#nanoTime()} units, 0 for no wait
+     * @return true if the deadline is reached, false if the feeder is stopped
+     */
+    private boolean awaitDeadline(long deadlineNanos) {
+        if (deadlineNanos == 0) {
+            return true;
+        }
+        while (true) {
+            synchronized (pauseLock) {
+                if (!running.get()) {
+                    return false;
+                }
+                waiting = true;
+            }
+            try {
+                ReplayPacer.awaitDeadline(deadlineNanos);
+                return true;
+            } catch (InterruptedException e) {
+                // Interrupted to stop or to pause the feeder
+            } finally {
+                synchronized (pauseLock) {
+                    waiting = false;
+                    // An interrupt which arrived as the wait ended is not left for the sends to Siddhi
+                    Thread.interrupted();
+                }
+            }
+            if (!running.get()) {
+                return false;
+            }
+            deadlineNanos += awaitResume();
+        }
+    }
+
+    /**
+     * Send an event on its own, which is stamped by the timestamp generator of the siddhi app as the input was
+     * before the events were batched. The events read before it are sent first, so that the order of the input is
+     * preserved.
+     *
+     * @param streamName name of the stream the event belongs to
+     * @param data       data of the event
+     */
+    private void sendUnstamped(String streamName, Object[] data) {
+        flush();
+        awaitDispatcher();
+        try {
+            inputHandlerMap.computeIfAbsent(streamName, siddhiAppRuntime::getInputHandler).send(data);
+            statistics.record(streamName, 1);
+        } catch (InterruptedException e) {
+            log.error("Error in sending an event of stream " + streamName + " to Siddhi" + ":" + e);
+        }
+    }
+
+    private void awaitDispatcher() {
+        if (dispatcher != null) {
+            try {
+                dispatcher.awaitIdle();
+            } catch (InterruptedException e) {
+                log.error("Error in waiting for the input feeder workers" + ":" + e);
+            }
+        }
+    }
+
+    /**
+     * Get the statistics of the events sent by the input feeder.
+     *
+     * @return the feeder statistics
+     */
+    public FeederStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Record the time each event is sent at, e.g. to measure the latency of the output events. The time the batch of an
+     * event is handed over to the feeder workers is recorded when the streams are sent concurrently.
+     *
+     * @param sendTimeLog log to record the send times into
+     */
+    public void setSendTimeLog(SendTimeLog sendTimeLog) {
+        this.sendTimeLog = sendTimeLog;
     }
 
     /**
@@ -98,30 +396,154 @@ public class InputFeeder implements Runnable {
     }
 
     /**
-     * Stop the input feeder.
+     * Pause the input feeder. Events read before the pause may still be sent, but no further line is read until
+     * the feeder is resumed. A feeder waiting for a delay or for the replay time of an event is interrupted, and
+     * waits for the rest of it once resumed.
+     */
+    public void pause() {
+        synchronized (pauseLock) {
+            paused = true;
+            if (waiting) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Resume a paused input feeder.
+     */
+    public void resume() {
+        synchronized (pauseLock) {
+            paused = false;
+            pauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * Check whether the input feeder is paused.
+     *
+     * @return true if the input feeder is paused, otherwise false.
+     */
+    public boolean isPaused() {
+        synchronized (pauseLock) {
+            return paused;
+        }
+    }
+
+    /**
+     * Wait until the feeder thread has sent the events read before the pause and is waiting to be resumed, or until
+     * the feeder has completed. A feeder which is in a delay or waiting for the replay time of an event is parked
+     * without waiting for the rest of it.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitPaused() throws InterruptedException {
+        synchronized (pauseLock) {
+            while (paused && !parked && !completed && running.get()) {
+                pauseLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Replace the siddhi app runtime the events are sent to. The feeder should be paused and parked, so that no
+     * event is in flight to the previous runtime.
+     *
+     * @param siddhiAppRuntime the siddhi app runtime to send the remaining input to
+     */
+    public void setSiddhiAppRuntime(SiddhiAppRuntime siddhiAppRuntime) {
+        synchronized (pauseLock) {
+            this.siddhiAppRuntime = siddhiAppRuntime;
+            inputHandlerMap.clear();
+        }
+    }
+
+    /**
+     * Park the feeder thread while the feeder is paused. The replay schedule is moved by the time the feeder is
+     * paused for, so that the input after the pause keeps its pace rather than being sent all at once.
+     *
+     * @return the time the feeder was paused for in nanoseconds
+     */
+    private long awaitResume() {
+        if (!isPaused()) {
+            return 0;
+        }
+        long pauseStartTime = System.nanoTime();
+        // Events read before the pause are sent, so that they reach the runtime which is current at the pause
+        flush();
+        awaitDispatcher();
+        synchronized (pauseLock) {
+            parked = true;
+            pauseLock.notifyAll();
+            try {
+                while (paused && running.get()) {
+                    try {
+                        pauseLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            } finally {
+                parked = false;
+            }
+        }
+        long pausedNanos = System.nanoTime() - pauseStartTime;
+        pacer.shift(pausedNanos);
+        return pausedNanos;
+    }
+
+    /**
+     * Stop the input feeder. A feeder which is stopped before it is started never runs, and a feeder waiting for a
+     * delay or for the replay time of an event stops without waiting for the rest of it.
      */
     public void stop() {
-        running.set(false);
+        synchronized (pauseLock) {
+            running.set(false);
+            if (!started) {
+                started = true;
+                completed = true;
+            }
+            paused = false;
+            if (waiting) {
+                thread.interrupt();
+            }
+            pauseLock.notifyAll();
+        }
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
     }
 
     /**
-     * Start the input feeder.
+     * Start the input feeder. A feeder is run only once.
      */
     public void start() {
-        if (!running.get()) {
+        synchronized (pauseLock) {
+            if (started) {
+                return;
+            }
+            started = true;
             running.set(true);
             thread.start();
         }
     }
 
     /**
-     * Join the current thread behind the thread used to execute the input feeder.
+     * Wait until the input feeder has completed, either by feeding the whole input or by being stopped. Waits for a
+     * feeder which is not started yet to be started and completed.
      */
     public void join() {
-        try {
-            thread.join();
-        } catch (InterruptedException e) {
-            log.error("Error in joining the main thread behind the input feeder");
+        synchronized (pauseLock) {
+            while (!completed) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException e) {
+                    log.error("Error in joining the main thread behind the input feeder");
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
         }
     }
 }
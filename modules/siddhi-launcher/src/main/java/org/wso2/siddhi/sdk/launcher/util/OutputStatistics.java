@@ -0,0 +1,176 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.util;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.output.StreamCallback;
+import org.wso2.siddhi.query.api.exception.DefinitionNotExistException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the end to end latency and the throughput of the output streams of a siddhi app. The latency of an output
+ * event is the time between the input feeder sending the input event with the timestamp of the output event, as kept
+ * in the {@link SendTimeLog} of the feeder, and the output event being received by the stream callback. Output
+ * events whose timestamp is not the timestamp of an event sent by the feeder, such as the events triggered by a
+ * source or a timer, are only counted.
+ */
+public class OutputStatistics {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int SIGNIFICANT_VALUE_DIGITS = 3;
+
+    private final Map<String, StreamStatistics> streamStatisticsMap = new LinkedHashMap<>();
+    private final SendTimeLog sendTimeLog;
+    private volatile long startTime;
+    private long lastReportTime;
+
+    /**
+     * Create the statistics of the given output streams.
+     *
+     * @param streamIds   ids of the output streams
+     * @param sendTimeLog send times of the events of the input feeder
+     */
+    public OutputStatistics(Collection<String> streamIds, SendTimeLog sendTimeLog) {
+        this.sendTimeLog = sendTimeLog;
+        for (String streamId : streamIds) {
+            streamStatisticsMap.put(streamId, new StreamStatistics());
+        }
+    }
+
+    /**
+     * Add a callback to each output stream of the siddhi app runtime to record the events it receives. Output streams
+     * which the runtime does not define, such as the streams removed when the siddhi app is redeployed, are skipped.
+     *
+     * @param siddhiAppRuntime the siddhi app runtime
+     */
+    public void attach(SiddhiAppRuntime siddhiAppRuntime) {
+        for (Map.Entry<String, StreamStatistics> entry : streamStatisticsMap.entrySet()) {
+            StreamStatistics streamStatistics = entry.getValue();
+            try {
+                siddhiAppRuntime.addCallback(entry.getKey(), new StreamCallback() {
+                    @Override
+                    public void receive(Event[] events) {
+                        streamStatistics.record(events, sendTimeLog);
+                    }
+                });
+            } catch (DefinitionNotExistException e) {
+                // The stream is not in this version of the siddhi app
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Mark the start of the measurement.
+     */
+    public synchronized void start() {
+        startTime = System.nanoTime();
+        lastReportTime = startTime;
+    }
+
+    /**
+     * Get a human readable report of the events received since the previous interval report.
+     *
+     * @return the report
+     */
+    public synchronized String getIntervalReport() {
+        long now = System.nanoTime();
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(now - lastReportTime);
+        lastReportTime = now;
+        StringBuilder builder = new StringBuilder("Output statistics for the last ").append(durationMillis)
+                .append(" ms");
+        for (Map.Entry<String, StreamStatistics> entry : streamStatisticsMap.entrySet()) {
+            StreamStatistics streamStatistics = entry.getValue();
+            streamStatistics.nextInterval();
+            appendStream(builder, entry.getKey(), streamStatistics.intervalEventCount, streamStatistics.interval,
+                    durationMillis);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get a human readable summary of all the events received since the start of the measurement.
+     *
+     * @return the summary
+     */
+    public synchronized String getSummary() {
+        long durationMillis = (startTime == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        StringBuilder builder = new StringBuilder("Output statistics for ").append(durationMillis).append(" ms");
+        for (Map.Entry<String, StreamStatistics> entry : streamStatisticsMap.entrySet()) {
+            StreamStatistics streamStatistics = entry.getValue();
+            streamStatistics.nextInterval();
+            appendStream(builder, entry.getKey(), streamStatistics.reportedEventCount, streamStatistics.total,
+                    durationMillis);
+        }
+        return builder.toString();
+    }
+
+    private static void appendStream(StringBuilder builder, String streamId, long count, Histogram histogram,
+                                     long durationMillis) {
+        builder.append(System.lineSeparator()).append("    Stream: ").append(streamId)
+                .append(", Events: ").append(count)
+                .append(", Rate: ").append((durationMillis == 0) ? count : (count * 1000) / durationMillis)
+                .append(" events/sec");
+        if (histogram.getTotalCount() > 0) {
+            builder.append(", Latency: p50=").append(histogram.getValueAtPercentile(50))
+                    .append(" ms, p99=").append(histogram.getValueAtPercentile(99))
+                    .append(" ms, p999=").append(histogram.getValueAtPercentile(99.9))
+                    .append(" ms, max=").append(histogram.getMaxValue()).append(" ms");
+        }
+    }
+
+    /**
+     * Event count and latency histograms of an output stream. Callbacks record into a {@link Recorder}, which lets
+     * the reports read an interval without blocking the callbacks.
+     */
+    private static class StreamStatistics {
+
+        private final LongAdder eventCount = new LongAdder();
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_LATENCY_MILLIS, SIGNIFICANT_VALUE_DIGITS);
+        private final Histogram total = new Histogram(HIGHEST_TRACKABLE_LATENCY_MILLIS, SIGNIFICANT_VALUE_DIGITS);
+        private Histogram interval;
+        private long intervalEventCount;
+        private long reportedEventCount;
+
+        private void record(Event[] events, SendTimeLog sendTimeLog) {
+            long now = System.currentTimeMillis();
+            for (Event event : events) {
+                long sendTime = sendTimeLog.getSendTime(event.getTimestamp());
+                if (sendTime != SendTimeLog.NOT_FOUND) {
+                    recorder.recordValue(Math.max(0, Math.min(now - sendTime, HIGHEST_TRACKABLE_LATENCY_MILLIS)));
+                }
+            }
+            eventCount.add(events.length);
+        }
+
+        private void nextInterval() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            long currentEventCount = eventCount.sum();
+            intervalEventCount = currentEventCount - reportedEventCount;
+            reportedEventCount = currentEventCount;
+        }
+    }
+}
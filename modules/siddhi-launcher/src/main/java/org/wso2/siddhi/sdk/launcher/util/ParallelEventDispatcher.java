@@ -0,0 +1,261 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.siddhi.sdk.launcher.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends batches of events to Siddhi from a pool of worker threads. Each stream is assigned to a single worker, and
+ * each worker has a bounded hand-off queue, so the events of a stream are sent in the order they are read while
+ * different streams are sent concurrently.
+ * <p>
+ * Batches are dispatched from a single reader thread.
+ */
+public class ParallelEventDispatcher {
+
+    private static final Logger log = Logger.getLogger(ParallelEventDispatcher.class);
+
+    /**
+     * Maximum number of batches waiting to be sent by a worker.
+     */
+    private static final int QUEUE_CAPACITY = 256;
+
+    /**
+     * Interval at which a full queue is checked for a worker which has stopped.
+     */
+    private static final long HAND_OVER_CHECK_MILLIS = 100;
+
+    private static final Batch END_OF_INPUT = new Batch(null, null, null);
+
+    private final Worker[] workers;
+    private final Map<String, Worker> streamWorkerMap = new HashMap<>();
+    private final FeederStatistics statistics;
+    private final Object idleLock = new Object();
+    private volatile boolean running = false;
+    private int nextWorker = 0;
+    private long pendingBatches = 0;
+
+    public ParallelEventDispatcher(int workerCount, FeederStatistics statistics) {
+        this.statistics = statistics;
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Start the worker threads.
+     */
+    public void start() {
+        running = true;
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Hand over a batch of events to the worker of the stream. Blocks while the queue of the worker is full, and
+     * discards the batch if the worker has stopped.
+     *
+     * @param inputHandler input handler of the stream
+     * @param streamName   name of the stream
+     * @param events       events to send, which must not be modified afterwards
+     * @throws InterruptedException if interrupted while waiting for the worker
+     */
+    public void dispatch(InputHandler inputHandler, String streamName, Event[] events) throws InterruptedException {
+        Worker worker = streamWorkerMap.get(streamName);
+        if (worker == null) {
+            // Streams are assigned in the order they appear, which spreads them evenly among the workers
+            worker = workers[nextWorker];
+            nextWorker = (nextWorker + 1) % workers.length;
+            streamWorkerMap.put(streamName, worker);
+        }
+        synchronized (idleLock) {
+            pendingBatches++;
+        }
+        if (!handOver(worker, new Batch(inputHandler, streamName, events))) {
+            batchDone();
+        }
+    }
+
+    /**
+     * Put a batch into the queue of a worker, waiting while the queue is full as long as the worker is alive.
+     *
+     * @param worker worker to hand over the batch to
+     * @param batch  batch to hand over
+     * @return true if the batch is queued, false if the worker has stopped
+     * @throws InterruptedException if interrupted while waiting for the worker
+     */
+    private boolean handOver(Worker worker, Batch batch) throws InterruptedException {
+        while (!worker.queue.offer(batch, HAND_OVER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!worker.alive) {
+                return false;
+            }
+        }
+        if (!worker.alive) {
+            // The worker may have stopped after the batch was queued, in which case nobody else takes it
+            worker.discardQueued();
+        }
+        return true;
+    }
+
+    /**
+     * Wait until all the dispatched batches are sent to Siddhi.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitIdle() throws InterruptedException {
+        synchronized (idleLock) {
+            while (running && pendingBatches > 0) {
+                idleLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Send the remaining batches and stop the workers once they are done.
+     */
+    public void complete() {
+        for (Worker worker : workers) {
+            try {
+                handOver(worker, END_OF_INPUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+                return;
+            }
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                log.error("Error in joining input feeder worker " + worker.thread.getName());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Stop the workers, discarding the batches which are not sent yet.
+     */
+    public void stop() {
+        running = false;
+        for (Worker worker : workers) {
+            worker.discardQueued();
+            worker.thread.interrupt();
+        }
+        synchronized (idleLock) {
+            idleLock.notifyAll();
+        }
+    }
+
+    private void batchDone() {
+        synchronized (idleLock) {
+            pendingBatches--;
+            if (pendingBatches == 0) {
+                idleLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A batch of events of a stream.
+     */
+    private static class Batch {
+
+        private final InputHandler inputHandler;
+        private final String streamName;
+        private final Event[] events;
+
+        private Batch(InputHandler inputHandler, String streamName, Event[] events) {
+            this.inputHandler = inputHandler;
+            this.streamName = streamName;
+            this.events = events;
+        }
+    }
+
+    /**
+     * A worker sending the batches of the streams assigned to it.
+     */
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final Thread thread;
+        private volatile boolean alive = true;
+
+        private Worker(int index) {
+            thread = new Thread(this);
+            thread.setName("Siddhi Input Feeder Worker-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    Batch batch;
+                    try {
+                        batch = queue.take();
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    if (batch == END_OF_INPUT) {
+                        break;
+                    }
+                    try {
+                        batch.inputHandler.send(batch.events);
+                        statistics.record(batch.streamName, batch.events.length);
+                    } catch (InterruptedException e) {
+                        log.error("Error in sending " + batch.events.length + " events of stream " +
+                                batch.streamName + " to Siddhi" + ":" + e);
+                        break;
+                    } catch (RuntimeException e) {
+                        // A failing batch must not stop the worker, otherwise its streams could never be sent again
+                        log.error("Error in sending " + batch.events.length + " events of stream " +
+                                batch.streamName + " to Siddhi", e);
+                    } finally {
+                        batchDone();
+                    }
+                }
+            } finally {
+                alive = false;
+                discardQueued();
+            }
+        }
+
+        /**
+         * Remove the batches waiting in the queue, counting them as done so that the dispatcher does not wait
+         * for them.
+         */
+        private void discardQueued() {
+            Batch batch;
+            while ((batch = queue.poll()) != null) {
+                if (batch != END_OF_INPUT) {
+                    batchDone();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.siddhi.sdk.launcher.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the input feeder. Every wait is computed as an absolute deadline from a fixed base, hence the time spent in
+ * parsing and sending events does not accumulate as drift, as it does with consecutive sleeps.
+ * <p>
+ * Event timestamps are replayed at the given speed: 1 replays in real time, 10 replays ten times faster, and 0 sends
+ * the events as fast as possible.
+ */
+public class ReplayPacer {
+
+    /**
+     * The last part of a wait is spent spinning, since parking is not precise for short durations.
+     */
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * A delay which starts later than this is not shortened to catch up with the schedule.
+     */
+    private static final long MAX_DELAY_CATCH_UP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double speed;
+    private long baseEventTime = EventLineParser.NO_TIMESTAMP;
+    private long baseNanos;
+    private long delayDeadlineNanos = 0;
+    private long maxLagNanos = 0;
+
+    public ReplayPacer(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Check whether the event timestamps are used to pace the input.
+     *
+     * @return true if the events are replayed at a given speed, false if they are sent as fast as possible
+     */
+    public boolean isEventTimePaced() {
+        return speed > 0;
+    }
+
+    /**
+     * Get the wall clock deadline of an event. The first event starts the schedule, and an out of order event which
+     * is earlier than the first one is sent right away, so that the schedule of the events after it is kept.
+     *
+     * @param eventTimestamp timestamp of the event
+     * @return the deadline in {@link System#nanoTime()} units, or 0 if the event is not paced
+     */
+    public long getDeadline(long eventTimestamp) {
+        if (!isEventTimePaced() || eventTimestamp == EventLineParser.NO_TIMESTAMP) {
+            return 0;
+        }
+        if (baseEventTime == EventLineParser.NO_TIMESTAMP) {
+            baseEventTime = eventTimestamp;
+            baseNanos = System.nanoTime();
+        } else if (eventTimestamp < baseEventTime) {
+            return 0;
+        }
+        return baseNanos + (long) ((eventTimestamp - baseEventTime) * 1_000_000 / speed);
+    }
+
+    /**
+     * Check whether a deadline is in the future.
+     *
+     * @param deadlineNanos the deadline
+     * @return true if the feeder has to wait for the deadline
+     */
+    public boolean isAhead(long deadlineNanos) {
+        return deadlineNanos != 0 && deadlineNanos - System.nanoTime() > 0;
+    }
+
+    /**
+     * Get the time to wait for before sending an event, or record how late the event is.
+     *
+     * @param deadlineNanos the deadline returned by {@link #getDeadline(long)}
+     * @return the deadline to wait for, or 0 if the event is to be sent right away
+     */
+    public long getWaitDeadline(long deadlineNanos) {
+        if (deadlineNanos == 0) {
+            return 0;
+        }
+        long lag = System.nanoTime() - deadlineNanos;
+        if (lag > 0) {
+            maxLagNanos = Math.max(maxLagNanos, lag);
+            return 0;
+        }
+        delayDeadlineNanos = deadlineNanos;
+        return deadlineNanos;
+    }
+
+    /**
+     * Get the end of a {@code delay(<milliseconds>)} of the input. Without a replay speed the delay starts now, as a
+     * plain sleep of the feeder always has. When replaying, the delay is measured from the end of the previous delay,
+     * so that consecutive delays keep their rate.
+     *
+     * @param delayMillis the delay
+     * @return the deadline to wait for
+     */
+    public long getDelayDeadline(long delayMillis) {
+        if (!isEventTimePaced()) {
+            return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+        long now = System.nanoTime();
+        long start = delayDeadlineNanos;
+        if (start == 0 || now - start > MAX_DELAY_CATCH_UP_NANOS) {
+            start = now;
+        }
+        delayDeadlineNanos = start + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        // A delay also moves the event time schedule, so that the events after it are not sent all at once
+        baseNanos += Math.max(0, delayDeadlineNanos - now);
+        return delayDeadlineNanos;
+    }
+
+    /**
+     * Move the schedule by the time the feeder is paused for, so that the input is not behind its schedule when
+     * the feeder is resumed.
+     *
+     * @param pausedNanos the time the feeder is paused for
+     */
+    public void shift(long pausedNanos) {
+        baseNanos += pausedNanos;
+        if (delayDeadlineNanos != 0) {
+            delayDeadlineNanos += pausedNanos;
+        }
+    }
+
+    /**
+     * Get the largest delay of an event behind its schedule.
+     *
+     * @return the lag in milliseconds
+     */
+    public long getMaxLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLagNanos);
+    }
+
+    /**
+     * Wait until an absolute deadline.
+     *
+     * @param deadlineNanos the deadline in {@link System#nanoTime()} units
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void awaitDeadline(long deadlineNanos) throws InterruptedException {
+        while (true) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
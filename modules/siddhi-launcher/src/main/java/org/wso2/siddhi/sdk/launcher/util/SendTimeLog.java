@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the wall clock time at which the input feeder sent its recent events, by event timestamp. An output event
+ * carries the timestamp of the input event which triggered it, hence its latency can be measured from the time that
+ * input event was sent, whether the timestamp was stamped when the event was read or replayed from the event input
+ * file. Only exact timestamps are matched, so the output of a source event or of a timer is not given the send time
+ * of some other event, unless its timestamp happens to be the timestamp of an event of the feeder.
+ * <p>
+ * The send times of the last {@value #CAPACITY} distinct timestamps are kept. Timestamps are expected to ascend as
+ * they do in the input, an event with a timestamp which is not later than the last one recorded keeps the send time
+ * recorded before. The log is written by the feeder thread alone and read by the threads of Siddhi without a lock:
+ * the writer publishes an entry by advancing the count, and a reader checks that the entry it read was not claimed
+ * for a newer timestamp meanwhile.
+ */
+public class SendTimeLog {
+
+    /**
+     * Send time of an event which was not sent by the input feeder, or whose timestamp is no longer kept.
+     */
+    public static final long NOT_FOUND = -1;
+
+    private static final int CAPACITY = 64 * 1024;
+
+    private final AtomicLongArray timestamps = new AtomicLongArray(CAPACITY);
+    private final AtomicLongArray sendTimes = new AtomicLongArray(CAPACITY);
+
+    /**
+     * Number of entries claimed by the writer, which is advanced before an entry is overwritten, and the number of
+     * entries published to the readers, which is advanced once the entry is written.
+     */
+    private volatile long claimed = 0;
+    private volatile long published = 0;
+
+    /**
+     * Record the time an event is sent. Must only be called from one thread.
+     *
+     * @param timestamp timestamp of the event
+     * @param sendTime  wall clock time in milliseconds the event is sent at
+     */
+    public void record(long timestamp, long sendTime) {
+        long position = published;
+        if (position > 0 && timestamp <= timestamps.get(index(position - 1))) {
+            return;
+        }
+        claimed = position + 1;
+        timestamps.lazySet(index(position), timestamp);
+        sendTimes.lazySet(index(position), sendTime);
+        published = position + 1;
+    }
+
+    /**
+     * Get the time the event with the given timestamp was sent.
+     *
+     * @param timestamp timestamp of the event
+     * @return wall clock time in milliseconds the event was sent at, or {@link #NOT_FOUND}
+     */
+    public long getSendTime(long timestamp) {
+        long count = published;
+        long low = Math.max(0, count - CAPACITY);
+        long high = count - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long middleTimestamp = timestamps.get(index(middle));
+            if (middleTimestamp < timestamp) {
+                low = middle + 1;
+            } else if (middleTimestamp > timestamp) {
+                high = middle - 1;
+            } else {
+                long sendTime = sendTimes.get(index(middle));
+                // The entry is valid unless the writer has claimed its slot for a newer timestamp meanwhile
+                return (middle >= claimed - CAPACITY) ? sendTime : NOT_FOUND;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static int index(long position) {
+        return (int) (position % CAPACITY);
+    }
+}
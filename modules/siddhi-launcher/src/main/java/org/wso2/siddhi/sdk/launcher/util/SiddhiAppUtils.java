@@ -0,0 +1,159 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.siddhi.sdk.launcher.util;
+
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.query.api.SiddhiApp;
+import org.wso2.siddhi.query.api.annotation.Annotation;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.query.api.execution.ExecutionElement;
+import org.wso2.siddhi.query.api.execution.partition.Partition;
+import org.wso2.siddhi.query.api.execution.query.Query;
+import org.wso2.siddhi.query.api.execution.query.output.stream.InsertIntoStream;
+import org.wso2.siddhi.query.api.execution.query.output.stream.OutputStream;
+import org.wso2.siddhi.query.api.util.AnnotationHelper;
+import org.wso2.siddhi.query.compiler.SiddhiCompiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utility methods to inspect the structure of a siddhi app.
+ */
+public class SiddhiAppUtils {
+
+    private static final Logger log = Logger.getLogger(SiddhiAppUtils.class);
+
+    private static final String ANNOTATION_APP_NAME = "name";
+    private static final String ANNOTATION_APP_PLAYBACK = "playback";
+    private static final String ANNOTATION_ASYNC = "async";
+
+    private SiddhiAppUtils() {
+
+    }
+
+    /**
+     * Get the name given to a siddhi app with the {@code @app:name} annotation.
+     *
+     * @param siddhiApp the siddhi app
+     * @return the name, or null if the app is not named or cannot be parsed
+     */
+    public static String getAppName(String siddhiApp) {
+        try {
+            Annotation annotation = AnnotationHelper.getAnnotation(ANNOTATION_APP_NAME,
+                    SiddhiCompiler.parse(SiddhiCompiler.updateVariables(siddhiApp)).getAnnotations());
+            if (annotation != null && !annotation.getElements().isEmpty()) {
+                return annotation.getElements().get(0).getValue();
+            }
+        } catch (RuntimeException e) {
+            log.debug("Siddhi app could not be parsed to inspect its name", e);
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a siddhi app runs in playback mode with the {@code @app:playback} annotation, in which case its
+     * time follows the timestamps of its events rather than the wall clock.
+     *
+     * @param siddhiApp the siddhi app
+     * @return true if the siddhi app is in playback mode
+     */
+    public static boolean isPlayback(SiddhiApp siddhiApp) {
+        return siddhiApp != null &&
+                AnnotationHelper.getAnnotation(ANNOTATION_APP_PLAYBACK, siddhiApp.getAnnotations()) != null;
+    }
+
+    /**
+     * Get the streams which are made asynchronous with the {@code @async} annotation, whose events are queued
+     * before they are processed.
+     *
+     * @param streamDefinitionMap the stream definitions of a siddhi app
+     * @return the ids of the asynchronous streams
+     */
+    public static Set<String> getAsyncStreamIds(Map<String, StreamDefinition> streamDefinitionMap) {
+        Set<String> streamIds = new LinkedHashSet<>();
+        for (Map.Entry<String, StreamDefinition> entry : streamDefinitionMap.entrySet()) {
+            if (AnnotationHelper.getAnnotation(ANNOTATION_ASYNC, entry.getValue().getAnnotations()) != null) {
+                streamIds.add(entry.getKey());
+            }
+        }
+        return streamIds;
+    }
+
+    /**
+     * Get the name of a siddhi app, which is the name given with the {@code @app:name} annotation or else the name
+     * of its file without the extension.
+     *
+     * @param siddhiApp the siddhi app
+     * @param fileName  name of the file of the siddhi app
+     * @return the name
+     */
+    public static String getAppName(String siddhiApp, String fileName) {
+        String siddhiAppName = getAppName(siddhiApp);
+        if (siddhiAppName != null && !siddhiAppName.isEmpty()) {
+            return siddhiAppName;
+        }
+        int extensionIndex = fileName.lastIndexOf('.');
+        return (extensionIndex > 0) ? fileName.substring(0, extensionIndex) : fileName;
+    }
+
+    /**
+     * Get the queries of a siddhi app, including the queries inside partitions, in the order they are defined.
+     *
+     * @param siddhiApp the siddhi app
+     * @return the queries, or an empty list if the app cannot be parsed
+     */
+    public static List<Query> getQueries(String siddhiApp) {
+        SiddhiApp parsedSiddhiApp;
+        try {
+            parsedSiddhiApp = SiddhiCompiler.parse(SiddhiCompiler.updateVariables(siddhiApp));
+        } catch (RuntimeException e) {
+            log.debug("Siddhi app could not be parsed to inspect its queries", e);
+            return Collections.emptyList();
+        }
+        List<Query> queries = new ArrayList<>();
+        for (ExecutionElement executionElement : parsedSiddhiApp.getExecutionElementList()) {
+            if (executionElement instanceof Query) {
+                queries.add((Query) executionElement);
+            } else if (executionElement instanceof Partition) {
+                queries.addAll(((Partition) executionElement).getQueryList());
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Get the streams the queries of a siddhi app insert their output into. Inner streams of partitions are
+     * excluded.
+     *
+     * @param siddhiApp the siddhi app
+     * @return the ids of the output streams
+     */
+    public static Set<String> getQueryOutputStreamIds(String siddhiApp) {
+        Set<String> streamIds = new LinkedHashSet<>();
+        for (Query query : getQueries(siddhiApp)) {
+            OutputStream outputStream = query.getOutputStream();
+            if (outputStream instanceof InsertIntoStream && !((InsertIntoStream) outputStream).isInnerStream()) {
+                streamIds.add(outputStream.getId());
+            }
+        }
+        return streamIds;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.debug.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.debugger.SiddhiDebugger;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.query.api.SiddhiApp;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.query.api.execution.query.Query;
+import org.wso2.siddhi.query.compiler.SiddhiCompiler;
+import org.wso2.siddhi.sdk.launcher.exception.DebugException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BreakPointConditionTest {
+
+    private static final String STOCK_STREAM = "define stream StockStream (symbol string, price float, volume long); ";
+
+    private SiddhiManager siddhiManager;
+    private SiddhiAppRuntime siddhiAppRuntime;
+    private BreakPointCondition breakPointCondition;
+
+    @BeforeMethod
+    public void init() {
+        siddhiManager = new SiddhiManager();
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        if (breakPointCondition != null) {
+            breakPointCondition.shutdown();
+            breakPointCondition = null;
+        }
+        if (siddhiAppRuntime != null) {
+            siddhiAppRuntime.shutdown();
+            siddhiAppRuntime = null;
+        }
+        siddhiManager.shutdown();
+    }
+
+    @Test
+    public void testConditionAtInTerminalOfReorderedSelect() throws InterruptedException {
+        List<Boolean> matches = debugAtInTerminal(STOCK_STREAM +
+                        "@info(name = 'query1') from StockStream select volume as quantity, symbol " +
+                        "insert into OutputStream;",
+                "symbol == 'WSO2' and volume > 100",
+                new Object[]{"WSO2", 55.6f, 200L},
+                new Object[]{"WSO2", 57.6f, 50L},
+                new Object[]{"IBM", 75.6f, 200L});
+        Assert.assertEquals(matches, Arrays.asList(true, false, false));
+    }
+
+    @Test
+    public void testConditionAtInTerminalOfSelectAll() throws InterruptedException {
+        List<Boolean> matches = debugAtInTerminal(STOCK_STREAM +
+                        "@info(name = 'query1') from StockStream select * insert into OutputStream;",
+                "price > 60",
+                new Object[]{"WSO2", 55.6f, 200L},
+                new Object[]{"IBM", 75.6f, 100L});
+        Assert.assertEquals(matches, Arrays.asList(false, true));
+    }
+
+    @Test(expectedExceptions = DebugException.class)
+    public void testConditionOnAttributeNotSelected() throws InterruptedException {
+        debugAtInTerminal(STOCK_STREAM +
+                        "@info(name = 'query1') from StockStream select symbol, volume insert into OutputStream;",
+                "price > 60");
+    }
+
+    @Test(expectedExceptions = DebugException.class)
+    public void testConditionAtInTerminalOfSelectedExpression() {
+        SiddhiApp siddhiApp = SiddhiCompiler.parse(STOCK_STREAM +
+                "@info(name = 'query1') from StockStream select symbol, price * volume as total " +
+                "insert into OutputStream;");
+        BreakPointCondition.getInTerminalDefinition((Query) siddhiApp.getExecutionElementList().get(0),
+                siddhiApp.getStreamDefinitionMap().get("StockStream"));
+    }
+
+    @Test(expectedExceptions = DebugException.class)
+    public void testEventWithoutConditionAttributes() throws InterruptedException {
+        SiddhiApp siddhiApp = SiddhiCompiler.parse(STOCK_STREAM);
+        breakPointCondition = new BreakPointCondition("price > 60",
+                siddhiApp.getStreamDefinitionMap().get("StockStream"), siddhiManager);
+        breakPointCondition.matches(new Object[]{"WSO2", 55.6f});
+    }
+
+    /**
+     * Run a single query app with a conditional breakpoint at the in terminal of query1, and get whether each of
+     * the given events matches the condition.
+     */
+    private List<Boolean> debugAtInTerminal(String app, String condition, Object[]... events)
+            throws InterruptedException {
+        SiddhiApp siddhiApp = SiddhiCompiler.parse(app);
+        StreamDefinition streamDefinition = BreakPointCondition.getInTerminalDefinition(
+                (Query) siddhiApp.getExecutionElementList().get(0),
+                siddhiApp.getStreamDefinitionMap().get("StockStream"));
+        breakPointCondition = new BreakPointCondition(condition, streamDefinition, siddhiManager);
+
+        List<Boolean> matches = new ArrayList<>();
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+        SiddhiDebugger siddhiDebugger = siddhiAppRuntime.debug();
+        siddhiDebugger.acquireBreakPoint("query1", SiddhiDebugger.QueryTerminal.IN);
+        siddhiDebugger.setDebuggerCallback((event, queryName, queryTerminal, debugger) -> {
+            try {
+                matches.add(breakPointCondition.matches(event.getOutputData()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                debugger.play();
+            }
+        });
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("StockStream");
+        for (Object[] event : events) {
+            inputHandler.send(event);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.siddhi.sdk.launcher.util;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.sdk.launcher.exception.EventParseException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class EventLineParserTest {
+
+    private EventLineParser parser;
+
+    @BeforeMethod
+    public void init() {
+        Map<String, StreamDefinition> streamDefinitionMap = new HashMap<>();
+        streamDefinitionMap.put("StockStream", StreamDefinition.id("StockStream")
+                .attribute("symbol", Attribute.Type.STRING)
+                .attribute("price", Attribute.Type.FLOAT)
+                .attribute("volume", Attribute.Type.LONG)
+                .attribute("trades", Attribute.Type.INT)
+                .attribute("change", Attribute.Type.DOUBLE)
+                .attribute("active", Attribute.Type.BOOL));
+        streamDefinitionMap.put("NameStream", StreamDefinition.id("NameStream")
+                .attribute("name", Attribute.Type.STRING));
+        parser = new EventLineParser(streamDefinitionMap);
+    }
+
+    @Test
+    public void testTypedValues() {
+        Object[] data = parser.parse("StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true]");
+        Assert.assertEquals(data, new Object[]{"WSO2", 55.6f, 100L, 10, -1.5, true});
+        Assert.assertEquals(parser.getStreamName(), "StockStream");
+        Assert.assertEquals(parser.getTimestamp(), EventLineParser.NO_TIMESTAMP);
+    }
+
+    @Test
+    public void testQuotedValues() {
+        Object[] data = parser.parse("StockStream=['WSO2', \"55.6\", \"100\", \" 10 \", \"-1.5\", \"false\"]");
+        Assert.assertEquals(data, new Object[]{"WSO2", 55.6f, 100L, 10, -1.5, false});
+    }
+
+    @Test
+    public void testNullAndBareValues() {
+        Object[] data = parser.parse("StockStream=[WSO2 Inc, null, null, null, null, null]");
+        Assert.assertEquals(data, new Object[]{"WSO2 Inc", null, null, null, null, null});
+    }
+
+    @Test
+    public void testBareValueStartingWithNull() {
+        Assert.assertEquals(parser.parse("StockStream=[nullable, null , 100, 10, -1.5, null]"),
+                new Object[]{"nullable", null, 100L, 10, -1.5, null});
+    }
+
+    @Test
+    public void testWhitespace() {
+        Object[] data = parser.parse("StockStream @ 1500000000000 = [ \"WSO2\" ,55.6,100 , 10,-1.5 ,true ] ");
+        Assert.assertEquals(data, new Object[]{"WSO2", 55.6f, 100L, 10, -1.5, true});
+        Assert.assertEquals(parser.getTimestamp(), 1500000000000L);
+    }
+
+    @Test
+    public void testTimestamp() {
+        parser.parse("StockStream@1500000000000=[\"WSO2\", 55.6, 100, 10, -1.5, true]");
+        Assert.assertEquals(parser.getTimestamp(), 1500000000000L);
+        parser.parse("StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true]");
+        Assert.assertEquals(parser.getTimestamp(), EventLineParser.NO_TIMESTAMP);
+    }
+
+    @Test
+    public void testStreamSwitching() {
+        Assert.assertEquals(parser.parse("NameStream=[\"a\"]"), new Object[]{"a"});
+        parser.parse("StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true]");
+        Assert.assertEquals(parser.getStreamName(), "StockStream");
+        Assert.assertEquals(parser.parse("NameStream=[\"b\"]"), new Object[]{"b"});
+        Assert.assertEquals(parser.getStreamName(), "NameStream");
+    }
+
+    @Test
+    public void testStringEscapes() {
+        Assert.assertEquals(parser.parse("NameStream=[\"a\\\"b\\\\c\\/d\"]"), new Object[]{"a\"b\\c/d"});
+        Assert.assertEquals(parser.parse("NameStream=[\"tab\\tnew\\nline\\r\\b\\f\"]"),
+                new Object[]{"tab\tnew\nline\r\b\f"});
+        Assert.assertEquals(parser.parse("NameStream=[\"\\u0057SO2 \\u00e9\"]"), new Object[]{"WSO2 \u00e9"});
+        Assert.assertEquals(parser.parse("NameStream=['it\\'s, \"quoted\"']"), new Object[]{"it's, \"quoted\""});
+        Assert.assertEquals(parser.parse("NameStream=[\"a,b]c\"]"), new Object[]{"a,b]c"});
+        Assert.assertEquals(parser.parse("NameStream=[\"\"]"), new Object[]{""});
+    }
+
+    @Test
+    public void testNumbers() {
+        Assert.assertEquals(parser.parse("StockStream=[\"A\", 1e2, 9223372036854775807, 2147483647, 1.5E-3, " +
+                "true]"), new Object[]{"A", 100f, Long.MAX_VALUE, Integer.MAX_VALUE, 0.0015, true});
+        Assert.assertEquals(parser.parse("StockStream=[\"A\", -0.5, -9223372036854775808, -2147483648, +2, " +
+                "false]"), new Object[]{"A", -0.5f, Long.MIN_VALUE, Integer.MIN_VALUE, 2.0, false});
+        // Decimal values of integral attributes are truncated
+        Assert.assertEquals(parser.parse("StockStream=[\"A\", 1, 12.9, \"-7.9\", 3, true]"),
+                new Object[]{"A", 1f, 12L, -7, 3.0, true});
+    }
+
+    @DataProvider(name = "invalidLines")
+    public Object[][] invalidLines() {
+        return new Object[][]{
+                {"StockStream"},
+                {"=[\"WSO2\"]"},
+                {"UnknownStream=[\"WSO2\"]"},
+                {"StockStream@-1=[\"WSO2\", 55.6, 100, 10, -1.5, true]"},
+                {"StockStream@time=[\"WSO2\", 55.6, 100, 10, -1.5, true]"},
+                {"StockStream=\"WSO2\", 55.6, 100, 10, -1.5, true"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true, 1]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, true] extra"},
+                {"StockStream=[\"WSO2\" 55.6, 100, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2, 55.6, 100, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", , 100, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 12a, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 1-2, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", abc, 100, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 2147483648, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, -2147483649, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, \"2147483648\", -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 1e10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 9223372036854775808, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 1e19, 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, \"NaN\", 10, -1.5, true]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, yes]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, \"yes\"]"},
+                {"StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, \"TRUE\"]"},
+                {"NameStream=[\"\\u00g1\"]"},
+                {"NameStream=[\"\\u00\"]"},
+        };
+    }
+
+    @Test(dataProvider = "invalidLines", expectedExceptions = EventParseException.class)
+    public void testInvalidLine(String line) {
+        parser.parse(line);
+    }
+
+    @Test
+    public void testParserRecoversAfterInvalidLine() {
+        try {
+            parser.parse("StockStream=[\"WSO2\", 55.6, 100, 10, -1.5, yes]");
+            Assert.fail("The invalid line is parsed");
+        } catch (EventParseException e) {
+            Assert.assertTrue(e.getMessage().contains("StockStream"), e.getMessage());
+        }
+        Assert.assertEquals(parser.parse("NameStream=[\"a\"]"), new Object[]{"a"});
+    }
+}